@@ -0,0 +1,50 @@
+package io.github.kamitejp.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.kamitejp.geometry.Rectangle;
+import io.github.kamitejp.recognition.GameTextboxAutoBlockDetector;
+import io.github.kamitejp.recognition.MangaAutoBlockDetector;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class AutoBlockDetectorBenchmark {
+  private final MangaAutoBlockDetector mangaDetector = new MangaAutoBlockDetector();
+  private final GameTextboxAutoBlockDetector gameTextboxDetector =
+    new GameTextboxAutoBlockDetector();
+  private BufferedImage mangaPage;
+  private BufferedImage gameTextbox;
+
+  @Setup
+  public void setup() {
+    mangaPage = BenchmarkCorpus.load(BenchmarkCorpus.MANGA_PAGE);
+    gameTextbox = BenchmarkCorpus.load(BenchmarkCorpus.GAME_TEXTBOX);
+  }
+
+  @Benchmark
+  public Optional<Rectangle> detectManga() {
+    return mangaDetector.detect(mangaPage, /* debug */ false, (_, _) -> {});
+  }
+
+  @Benchmark
+  public Optional<Rectangle> detectGameTextbox() {
+    return gameTextboxDetector.detect(gameTextbox, /* debug */ false, (_, _) -> {});
+  }
+}
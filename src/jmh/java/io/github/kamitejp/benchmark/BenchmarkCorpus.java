@@ -0,0 +1,166 @@
+package io.github.kamitejp.benchmark;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+// Input images for the benchmarks. Every sample is a synthetic rendering that imitates a typical
+// input, so that the benchmarks do not depend on copyrighted material. Real screenshots can be
+// substituted by pointing the `kamite.benchmark.corpusDir` system property at a directory with
+// `<sample name>.png` files
+final class BenchmarkCorpus {
+  static final String MANGA_PAGE = "manga-page";
+  static final String GAME_TEXTBOX = "game-textbox";
+  static final String LIGHT_ON_DARK = "light-on-dark";
+
+  private static final String CORPUS_DIR_PROPERTY = "kamite.benchmark.corpusDir";
+  private static final String TEXT = "吾輩は猫である。名前はまだ無い。どこで生れたかとんと見当がつかぬ。";
+
+  private BenchmarkCorpus() {}
+
+  static BufferedImage load(String sampleName) {
+    var corpusDir = System.getProperty(CORPUS_DIR_PROPERTY);
+    if (corpusDir != null) {
+      var path = Path.of(corpusDir, sampleName + ".png");
+      if (Files.isReadable(path)) {
+        try {
+          return toRGB(ImageIO.read(path.toFile()));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+    return switch (sampleName) {
+      case MANGA_PAGE    -> mangaPage();
+      case GAME_TEXTBOX  -> gameTextbox();
+      case LIGHT_ON_DARK -> lightOnDark();
+      default -> throw new IllegalArgumentException("Unknown sample: " + sampleName);
+    };
+  }
+
+  // An auto block detection area of a manga page: a speech bubble with vertical text at the center,
+  // surrounded by panel borders, another bubble and screentone
+  private static BufferedImage mangaPage() {
+    var img = new BufferedImage(550, 900, BufferedImage.TYPE_INT_RGB);
+    var gfx = createGraphics(img, Color.WHITE);
+    var rand = new Random(1);
+
+    // Screentone in the lower part of the page
+    gfx.setColor(Color.BLACK);
+    for (var y = 620; y < 900; y += 6) {
+      for (var x = (y / 6) % 2 * 3; x < 550; x += 6) {
+        gfx.fillOval(x, y, 2 + rand.nextInt(2), 2 + rand.nextInt(2));
+      }
+    }
+
+    // Panel borders
+    gfx.setStroke(new BasicStroke(5));
+    gfx.drawRect(10, 10, 530, 590);
+    gfx.drawRect(10, 610, 530, 280);
+
+    drawBubble(gfx, 175, 250, 200, 400);
+    drawVerticalText(gfx, 325, 300, 4, 11, 26);
+    drawBubble(gfx, 40, 40, 110, 200);
+    drawVerticalText(gfx, 115, 70, 2, 6, 22);
+
+    gfx.dispose();
+    return img;
+  }
+
+  // The inside of a visual novel style textbox, as selected for region OCR: light text on
+  // a translucent dark box over a background scene, starting close to the top-left corner
+  private static BufferedImage gameTextbox() {
+    var img = new BufferedImage(1100, 200, BufferedImage.TYPE_INT_RGB);
+    var gfx = createGraphics(img, Color.WHITE);
+    gfx.setPaint(
+      new GradientPaint(0, 0, new Color(120, 170, 210), 1100, 200, new Color(60, 90, 40))
+    );
+    gfx.fillRect(0, 0, 1100, 200);
+    gfx.setColor(new Color(10, 10, 30, 200));
+    gfx.fillRect(0, 0, 1100, 200);
+    gfx.setColor(new Color(240, 240, 240));
+    drawHorizontalText(gfx, 40, 42, 3, 28, 34);
+    gfx.dispose();
+    return img;
+  }
+
+  // Plain light text on a dark background, as in a subtitle or a dark-themed game
+  private static BufferedImage lightOnDark() {
+    var img = new BufferedImage(800, 300, BufferedImage.TYPE_INT_RGB);
+    var gfx = createGraphics(img, new Color(20, 20, 20));
+    gfx.setColor(new Color(230, 230, 230));
+    drawHorizontalText(gfx, 30, 70, 4, 24, 30);
+    gfx.dispose();
+    return img;
+  }
+
+  private static Graphics2D createGraphics(BufferedImage img, Color background) {
+    var gfx = img.createGraphics();
+    gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    gfx.setRenderingHint(
+      RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON
+    );
+    gfx.setColor(background);
+    gfx.fillRect(0, 0, img.getWidth(), img.getHeight());
+    return gfx;
+  }
+
+  private static void drawBubble(Graphics2D gfx, int x, int y, int w, int h) {
+    gfx.setColor(Color.WHITE);
+    gfx.fillOval(x, y, w, h);
+    gfx.setColor(Color.BLACK);
+    gfx.setStroke(new BasicStroke(3));
+    gfx.drawOval(x, y, w, h);
+  }
+
+  // Draws columns from right to left, starting with the column at `x`
+  private static void drawVerticalText(
+    Graphics2D gfx, int x, int y, int numColumns, int columnLength, int size
+  ) {
+    gfx.setColor(Color.BLACK);
+    gfx.setFont(new Font(Font.SERIF, Font.PLAIN, size));
+    var charIdx = 0;
+    for (var col = 0; col < numColumns; col++) {
+      for (var row = 0; row < columnLength; row++) {
+        var ch = String.valueOf(TEXT.charAt(charIdx++ % TEXT.length()));
+        gfx.drawString(ch, x - col * (size + size / 3), y + row * (size + 2));
+      }
+    }
+  }
+
+  private static void drawHorizontalText(
+    Graphics2D gfx, int x, int y, int numLines, int lineLength, int size
+  ) {
+    gfx.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, size));
+    var charIdx = 0;
+    for (var line = 0; line < numLines; line++) {
+      var sb = new StringBuilder(lineLength);
+      for (var i = 0; i < lineLength; i++) {
+        sb.append(TEXT.charAt(charIdx++ % TEXT.length()));
+      }
+      gfx.drawString(sb.toString(), x, y + line * (size + size / 2));
+    }
+  }
+
+  private static BufferedImage toRGB(BufferedImage img) {
+    if (img.getType() == BufferedImage.TYPE_INT_RGB) {
+      return img;
+    }
+    var rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+    var gfx = rgb.createGraphics();
+    gfx.drawImage(img, 0, 0, null);
+    gfx.dispose();
+    return rgb;
+  }
+}
@@ -0,0 +1,76 @@
+package io.github.kamitejp.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.kamitejp.image.ImageOps;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponents;
+import io.github.kamitejp.recognition.imagefeature.Contour;
+import io.github.kamitejp.recognition.imagefeature.ContourFinder;
+
+// Contour finding modifies its input, so it is run on a fresh copy each time. The copying is
+// included in the measurement
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class ImageFeatureBenchmark {
+  @Param({
+    BenchmarkCorpus.MANGA_PAGE,
+    BenchmarkCorpus.GAME_TEXTBOX,
+    BenchmarkCorpus.LIGHT_ON_DARK
+  })
+  public String sample;
+
+  // Otsu-thresholded image, with text at 0 and background at 255
+  private int[] thresholded;
+  // Text at 1 and background at 0
+  private int[] binary;
+  private int w;
+  private int h;
+
+  @Setup
+  public void setup() {
+    var img = BenchmarkCorpus.load(sample);
+    w = img.getWidth();
+    h = img.getHeight();
+    thresholded = ImageOps.toGrayArray(img);
+    if (ImageOps.isDarkDominated(img)) {
+      for (var i = 0; i < thresholded.length; i++) {
+        thresholded[i] = 255 - thresholded[i];
+      }
+    }
+    ImageOps.otsuThreshold(thresholded);
+    binary = new int[thresholded.length];
+    for (var i = 0; i < thresholded.length; i++) {
+      binary[i] = thresholded[i] == 0 ? 1 : 0;
+    }
+  }
+
+  @Benchmark
+  public ConnectedComponents labelConnectedComponents() {
+    return ConnectedComponentLabeler.label(
+      thresholded, w, h, ConnectedComponentLabeler.SizeFilter.NONE
+    );
+  }
+
+  @Benchmark
+  public List<Contour> findContours() {
+    return ContourFinder.find(binary.clone(), w, h);
+  }
+}
@@ -0,0 +1,120 @@
+package io.github.kamitejp.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.kamitejp.image.FloodFill;
+import io.github.kamitejp.image.GrayMorphology;
+import io.github.kamitejp.image.ImageOps;
+import io.github.kamitejp.image.OtsuThreshold;
+import io.github.kamitejp.image.StructuringElement;
+
+// Operations that mutate their input are run on a fresh copy each time, so that every invocation
+// does the same work. The copying is included in the measurement
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class ImageOpsBenchmark {
+  @Param({
+    BenchmarkCorpus.MANGA_PAGE,
+    BenchmarkCorpus.GAME_TEXTBOX,
+    BenchmarkCorpus.LIGHT_ON_DARK
+  })
+  public String sample;
+
+  private BufferedImage img;
+  private BufferedImage grayImg;
+  private int[] grayArr;
+  private int w;
+  private int h;
+
+  @Setup
+  public void setup() {
+    img = BenchmarkCorpus.load(sample);
+    w = img.getWidth();
+    h = img.getHeight();
+    grayImg = ImageOps.copied(img);
+    ImageOps.toGrayscale(grayImg);
+    grayArr = ImageOps.toGrayArray(img);
+  }
+
+  @Benchmark
+  public int[] toGrayArray() {
+    return ImageOps.toGrayArray(img);
+  }
+
+  @Benchmark
+  public BufferedImage toGrayscale() {
+    var copy = ImageOps.copied(img);
+    ImageOps.toGrayscale(copy);
+    return copy;
+  }
+
+  @Benchmark
+  public BufferedImage threshold() {
+    var copy = ImageOps.copied(img);
+    ImageOps.threshold(copy, 100, 200);
+    return copy;
+  }
+
+  @Benchmark
+  public BufferedImage negate() {
+    var copy = ImageOps.copied(img);
+    ImageOps.negate(copy);
+    return copy;
+  }
+
+  @Benchmark
+  public int[] erodedRectangle() {
+    return GrayMorphology.eroded(grayArr, w, h, StructuringElement.rectangle(2, 2));
+  }
+
+  @Benchmark
+  public int[] erodedDisk() {
+    return GrayMorphology.eroded(grayArr, w, h, StructuringElement.disk(7));
+  }
+
+  @Benchmark
+  public int[] floodFill() {
+    var arr = grayArr.clone();
+    new FloodFill(arr, w).fill(0, 0, 255, 90);
+    return arr;
+  }
+
+  @Benchmark
+  public BufferedImage withWhiteFloodFilledBackground() {
+    return ImageOps.withWhiteFloodFilledBackground(img, 10, 90);
+  }
+
+  @Benchmark
+  public BufferedImage sharpen() {
+    var copy = ImageOps.copied(grayImg);
+    ImageOps.sharpen(copy, 2f, 0, 3);
+    return copy;
+  }
+
+  @Benchmark
+  public BufferedImage blurred() {
+    return ImageOps.blurred(grayImg, 2);
+  }
+
+  @Benchmark
+  public int otsuThreshold() {
+    return OtsuThreshold.of(grayArr);
+  }
+}
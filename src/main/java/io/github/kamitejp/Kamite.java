@@ -4,10 +4,13 @@ import static java.util.stream.Collectors.joining;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
@@ -36,6 +39,7 @@ import io.github.kamitejp.config.Config;
 import io.github.kamitejp.config.ConfigManager;
 import io.github.kamitejp.controlgui.ControlGUI;
 import io.github.kamitejp.dbus.DBusEvent;
+import io.github.kamitejp.diagnostics.EventRecorder;
 import io.github.kamitejp.event.Event;
 import io.github.kamitejp.event.EventHandler;
 import io.github.kamitejp.event.EventManager;
@@ -58,12 +62,15 @@ import io.github.kamitejp.platform.mpv.MPVController;
 import io.github.kamitejp.platform.mpv.Subtitle;
 import io.github.kamitejp.platform.process.ProcessHelper;
 import io.github.kamitejp.recognition.AutoBlockHeuristic;
+import io.github.kamitejp.recognition.BatchRecognizer;
 import io.github.kamitejp.recognition.OCRDirectoryWatcher;
 import io.github.kamitejp.recognition.OCRDirectoryWatcherCreationException;
 import io.github.kamitejp.recognition.OCREngine;
 import io.github.kamitejp.recognition.PointSelectionMode;
 import io.github.kamitejp.recognition.RecognitionConductor;
+import io.github.kamitejp.recognition.Recognizer;
 import io.github.kamitejp.recognition.RecognizerEvent;
+import io.github.kamitejp.recognition.RecognizerInitializationException;
 import io.github.kamitejp.recognition.RecognizerStatus;
 import io.github.kamitejp.recognition.TextOrientation;
 import io.github.kamitejp.server.InMessage;
@@ -103,9 +110,13 @@ public class Kamite {
     "debug", "debug",
     "profile", "profile",
     "regionHelper", "regionHelper",
-    "countChars", "countChars"
+    "countChars", "countChars",
+    "batchOCR", "batchOCR",
+    "batchOCROutput", "batchOCROutput"
   );
 
+  private static final String BATCH_OCR_DEFAULT_OUTPUT = "kamite-ocr.jsonl";
+
   private static final List<String> DEFAULT_SUBSCRIBED_EVENTS = List.of("chunk-add");
 
   private Platform platform;
@@ -123,6 +134,7 @@ public class Kamite {
   private ChunkLogger chunkLogger;
   private EventManager eventManager;
   private ProgramStatus status;
+  private EventRecorder eventRecorder;
 
   public void run(Map<String,String> args, BuildInfo buildInfo) {
     LOG.info("Starting {} (version {})", () -> APP_NAME_DISPLAY, buildInfo::getVersion);
@@ -172,6 +184,17 @@ public class Kamite {
     var configReadSuccess = configReadRes.get();
     config = configReadSuccess.config();
 
+    if (preconfigArgs.batchOCRInput() != null) {
+      Runtime.getRuntime().addShutdownHook(new Thread(platform::destroy));
+      var batchSucceeded = runBatchOCRMode(
+        preconfigArgs.batchOCRInput(),
+        preconfigArgs.batchOCROutput(),
+        preconfigArgs.profileNames()
+      );
+      System.exit(batchSucceeded ? 0 : 1);
+      return;
+    }
+
     // Detect unavailable platform-independent features
     var unavailableUniversalFeatures = new ArrayList<UnavailableUniversalFeature>(1);
     var kuromojiAdapter = new KuromojiAdapter(platform);
@@ -266,6 +289,11 @@ public class Kamite {
 
     initOrDiscardAgentClient(config.integrations().agent());
 
+    eventRecorder = new EventRecorder(platform.getDataDirPath());
+    if (config.diagnostics().recordEvents()) {
+      eventRecorder.start();
+    }
+
     recognitionConductor = new RecognitionConductor(
       platform,
       status,
@@ -356,6 +384,9 @@ public class Kamite {
     if (chunkLogger != null) {
       chunkLogger.finalizeLog();
     }
+    if (eventRecorder != null) {
+      eventRecorder.stop();
+    }
     Executor.destroy();
   }
 
@@ -421,6 +452,100 @@ public class Kamite {
     System.out.printf("\nCharacters: %d%n", count);
   }
 
+  // Returns whether the batch has run to completion with every image recognized
+  private boolean runBatchOCRMode(String input, String output, List<String> profileNames) {
+    var outputPath = Paths.get(BATCH_OCR_DEFAULT_OUTPUT);
+    if (output != null) {
+      try {
+        outputPath = Paths.get(output);
+      } catch (InvalidPathException e) {
+        LOG.error("Invalid Batch OCR output file path: {}", e::toString);
+        return false;
+      }
+    }
+
+    var engineRes = OCREngine.uninitializedFromConfig(config);
+    if (engineRes.isErr()) {
+      LOG.error("Error setting up OCR engine for initialization: {}", engineRes.err());
+      return false;
+    }
+    var engine = engineRes.get();
+    if (engine instanceof OCREngine.None) {
+      LOG.error("The Batch OCR mode requires an OCR engine to be set in the config (`ocr.engine`)");
+      return false;
+    }
+    // With many images recognized at once, OCR jobs queue up, so the variants that would be cut
+    // short by the latency budget would depend on the load rather than on the image
+    if (engine instanceof OCREngine.Tesseract tesseractEngine) {
+      engine = tesseractEngine.withoutEarlyFinish();
+    }
+
+    Recognizer recognizer;
+    try {
+      platform.initOCR(engine);
+      recognizer = new Recognizer(
+        platform,
+        engine,
+        /* debug */ false,
+        profileNames,
+        /* recognitionCache */ null,
+        /* eventCb */ event -> {
+          switch (event) {
+            case RecognizerEvent.MangaOCRStartedDownloadingModel _ ->
+              LOG.info("\"Manga OCR\" is downloading OCR model. This might take a while…");
+            case RecognizerEvent.Crashed _ ->
+              LOG.error("Recognizer has crashed");
+            default -> {}
+          }
+        }
+      );
+    } catch (PlatformOCRInitializationException.MissingDependencies e) {
+      LOG.error(
+        "The Batch OCR mode is not available due to missing dependencies: {}",
+        () -> String.join(", ", e.getDependencies())
+      );
+      return false;
+    } catch (PlatformOCRInitializationException | RecognizerInitializationException e) {
+      LOG.error("Could not initialize OCR for the Batch OCR mode:", e);
+      return false;
+    }
+
+    var batchConfig = config.ocr().batch();
+    var heuristic = batchConfig.autoBlockHeuristic() != null
+      ? AutoBlockHeuristic.valueOf(batchConfig.autoBlockHeuristic().toUpperCase(Locale.ENGLISH))
+      : null;
+    var parallelism = batchConfig.parallelism() != null
+      ? batchConfig.parallelism()
+      : Runtime.getRuntime().availableProcessors();
+    initOrDiscardChunkTransformer(config.chunk().transforms());
+    var correctionPolicy = ChunkCorrectionPolicy.fromChunkConfig(config.chunk());
+
+    var batchRecognizer = new BatchRecognizer(
+      recognizer,
+      heuristic,
+      /* processChunkVariantsFn */ variants -> variants.process(correctionPolicy, chunkTransformer),
+      parallelism
+    );
+    var res = batchRecognizer.run(input, outputPath);
+    recognizer.destroy();
+    platform.destroyOCR();
+    if (res.isErr()) {
+      LOG.error("Batch OCR has failed: {}", res.err());
+      return false;
+    }
+    var summary = res.get();
+    System.out.printf(
+      "%nImages: %d (skipped as already done: %d)%nRecognized: %d%nFailed: %d%n"
+        + "Throughput: %.2f images/s%n",
+      summary.numImages(),
+      summary.numSkipped(),
+      summary.numRecognized(),
+      summary.numFailed(),
+      summary.imagesPerSecond()
+    );
+    return summary.numFailed() == 0;
+  }
+
   private void createControlGUI() {
     new ControlGUI(platform);
   }
@@ -497,6 +622,27 @@ public class Kamite {
       eventManager.setUserEventHandlers(eventsConfig.handlers());
     }
 
+    var ocrConfig = config.ocr();
+    var oldOCRConfig = this.config.ocr();
+    if (
+      !Objects.equals(ocrConfig.regions(), oldOCRConfig.regions())
+      || !Objects.equals(ocrConfig.regionWatch(), oldOCRConfig.regionWatch())
+    ) {
+      Executor.get().execute(() -> recognitionConductor.watchRegions(config));
+    }
+    if (!Objects.equals(ocrConfig.pageArea(), oldOCRConfig.pageArea())) {
+      recognitionConductor.updatePageArea(config);
+    }
+
+    var recordEvents = config.diagnostics().recordEvents();
+    if (recordEvents != this.config.diagnostics().recordEvents()) {
+      if (recordEvents) {
+        eventRecorder.start();
+      } else {
+        eventRecorder.stop();
+      }
+    }
+
     var integrationsConfig = config.integrations();
     var oldIntegrationsConfig = this.config.integrations();
     if (!Objects.equals(integrationsConfig.agent(), oldIntegrationsConfig.agent())) {
@@ -778,6 +924,8 @@ public class Kamite {
       }
       case Command.Misc.Lookup cmd ->
         server.send(new LookupRequestOutMessage(cmd.targetSymbol(), cmd.customText()));
+      case Command.Misc.ToggleEventRecording _ ->
+        toggleEventRecording();
     }
 
     LOG.debug("Finished handling command: {}", command::getClass);
@@ -791,6 +939,19 @@ public class Kamite {
     );
   }
 
+  private void toggleEventRecording() {
+    if (eventRecorder.isRecording()) {
+      eventRecorder.stop().ifPresentOrElse(
+        path -> notifyUserOfInfo("Saved event recording to %s".formatted(path)),
+        () -> notifyUserOfError("Could not save event recording")
+      );
+    } else if (eventRecorder.start()) {
+      notifyUserOfInfo("Started recording events");
+    } else {
+      notifyUserOfError("Could not start recording events");
+    }
+  }
+
   private void runCustomCommand(String[] command) {
     if (!ProcessHelper.run(command).didCompleteWithoutError()) {
       notifyUserOfError("Custom command did not run successfully");
@@ -933,7 +1094,9 @@ public class Kamite {
     boolean debug,
     List<String> profileNames,
     boolean regionHelper,
-    boolean countChars
+    boolean countChars,
+    String batchOCRInput,
+    String batchOCROutput
   ) {}
 
   private static PreconfigArgs processPreconfigArgs(Map<String, String> args) {
@@ -957,7 +1120,13 @@ public class Kamite {
 
     var countChars = isArgValueTruthy(args.get(PRECONFIG_ARGS.get("countChars")));
 
-    return new PreconfigArgs(debug, profileNames, regionHelper, countChars);
+    var batchOCRInput = args.get(PRECONFIG_ARGS.get("batchOCR"));
+
+    var batchOCROutput = args.get(PRECONFIG_ARGS.get("batchOCROutput"));
+
+    return new PreconfigArgs(
+      debug, profileNames, regionHelper, countChars, batchOCRInput, batchOCROutput
+    );
   }
 
   // QUAL: Move?
@@ -35,6 +35,12 @@ Options:
   --regionHelper
       Launch in Region Helper mode: prints the region specifications for
       user-selected screen areas, exits once a selection is cancelled.
+  --batchOCR=<directory-or-glob>
+      Launch in Batch OCR mode: recognizes text in the specified images, writes
+      the results to a JSONL file, then exits.
+  --batchOCROutput=<file-path>
+      The file to write the Batch OCR results to (default: kamite-ocr.jsonl).
+      Resumes the work if the file contains results from an interrupted run.
 
   Additional options are available, corresponding to the available config keys.
   Please consult the sections 'Command-line parameters' and 'Config' in the
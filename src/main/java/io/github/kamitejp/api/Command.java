@@ -98,9 +98,11 @@ public sealed interface Command
 
   sealed interface Misc extends Command
     permits Misc.Custom,
-            Misc.Lookup {
+            Misc.Lookup,
+            Misc.ToggleEventRecording {
     record Custom(String[] command) implements Misc {}
     record Lookup(String targetSymbol, String customText) implements Misc {}
+    record ToggleEventRecording() implements Misc {}
   }
 
   static Result<Command, String> fromIncoming(IncomingCommand incoming) {
@@ -290,6 +292,8 @@ public sealed interface Command
             );
           }
 
+          case "toggle-event-recording" -> new Misc.ToggleEventRecording();
+
           default -> null;
         };
 
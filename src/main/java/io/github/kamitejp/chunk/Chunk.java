@@ -1,30 +1,22 @@
 package io.github.kamitejp.chunk;
 
 import static java.util.function.Predicate.not;
-import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.regex.Matcher;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
-import org.jsoup.Jsoup;
-
+import io.github.kamitejp.diagnostics.RecognitionTrace;
 import io.github.kamitejp.geometry.Rectangle;
 import io.github.kamitejp.textprocessing.TextProcessor;
 
 public class Chunk {
-  private static final String HOCR_WORD_TITLE_CONF_RE_RAW = "x_wconf (?<conf>\\d+)";
-  private static final Pattern HOCR_WORD_TITLE_CONF_RE =
-    Pattern.compile(HOCR_WORD_TITLE_CONF_RE_RAW);
-  private static final Pattern HOCR_WORD_TITLE_FULL_RE = Pattern.compile(
-    "bbox (?<x0>\\d+) (?<y0>\\d+) (?<x1>\\d+) (?<y1>\\d+); %s"
-      .formatted(HOCR_WORD_TITLE_CONF_RE_RAW)
-  );
-  private static final Pattern HOCR_GARBAGE_CHARS_RE =
+  private static final Pattern OCR_GARBAGE_CHARS_RE =
     Pattern.compile("[^A-Z!?\\-–—ーｦ-ﾟァ-ヶぁ-ゞＡ-ｚ０-９ｧ-ﾝﾞﾟァ-ンぁ-ん一-龯]+");
 
   private String content;
@@ -58,47 +50,36 @@ public class Chunk {
     score = calculateScore(avgConfidence);
   }
 
+  public static Optional<Chunk> fromTSVWithLabel(String s, String label) {
+    return fromTesseractOutputWithLabel(s, label, TesseractOutputParser::parseTSV);
+  }
+
   public static Optional<Chunk> fromHOCRWithLabel(String s, String label) {
-    final var firstWordBox = new Rectangle[1];
-    final var sumConfidences = new int[]{0};
-    final var numConfidences = new int[]{0};
-
-    var doc = Jsoup.parse(s);
-    var lines = doc.select(".ocr_line").stream().map(lineEl ->
-      lineEl.select(".ocrx_word").stream().map(wordEl -> {
-        var title = wordEl.attr("title");
-        Matcher m;
-        if (firstWordBox[0] == null) {
-          m = HOCR_WORD_TITLE_FULL_RE.matcher(title);
-          if (!m.find()) {
-            throw new IllegalArgumentException("Failed to match `.ocrx_word` title (full)");
-          }
-          var left = Integer.parseInt(m.group("x0"));
-          var right = Integer.parseInt(m.group("x1"));
-          var top = Integer.parseInt(m.group("y0"));
-          var bottom = Integer.parseInt(m.group("y1"));
-          firstWordBox[0] = Rectangle.ofEdges(left, top, right, bottom);
-        } else {
-          m = HOCR_WORD_TITLE_CONF_RE.matcher(title);
-          if (!m.find()) {
-            throw new IllegalArgumentException("Failed to match `.ocrx_word` title (conf.)");
-          }
-        }
-        var confidence = Integer.parseInt(m.group("conf"));
-        numConfidences[0]++;
-        sumConfidences[0] += confidence;
-        return wordEl.text();
-      })
-        .collect(joining())
-    )
-      .map(Chunk::hocrPreprocessContentLine)
-      .filter(not(String::isBlank))
-      .collect(toList());
-
-    var avgConfidence = (float) sumConfidences[0] / numConfidences[0];
-    return lines.isEmpty()
-      ? Optional.empty()
-      : Optional.of(new Chunk(lines, label, avgConfidence, firstWordBox[0]));
+    return fromTesseractOutputWithLabel(s, label, TesseractOutputParser::parseHOCR);
+  }
+
+  private static Optional<Chunk> fromTesseractOutputWithLabel(
+    String s, String label, Function<String, TesseractOutputParser.ParsedText> parseFn
+  ) {
+    var event = RecognitionTrace.stage("tesseract-output-parsing");
+    try {
+      var parsed = parseFn.apply(s);
+      var lines = parsed.lines().stream()
+        .map(Chunk::ocrPreprocessContentLine)
+        .filter(not(String::isBlank))
+        .collect(toList());
+      return lines.isEmpty()
+        ? Optional.empty()
+        : Optional.of(new Chunk(lines, label, parsed.avgConfidence(), parsed.firstWordBox()));
+    } finally {
+      event.finish(0, 0, () -> label);
+    }
+  }
+
+  public Chunk copied() {
+    var copy = new Chunk(content, new ArrayList<>(labels), score, firstWordBox);
+    copy.originalContent = originalContent;
+    return copy;
   }
 
   public String getContent() {
@@ -143,7 +124,7 @@ public class Chunk {
     return Math.round(avgConfidence);
   }
 
-  private static String hocrPreprocessContentLine(String l) {
-    return HOCR_GARBAGE_CHARS_RE.matcher(l).replaceAll("");
+  private static String ocrPreprocessContentLine(String l) {
+    return OCR_GARBAGE_CHARS_RE.matcher(l).replaceAll("");
   }
 }
@@ -0,0 +1,327 @@
+package io.github.kamitejp.chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.kamitejp.geometry.Rectangle;
+
+// Single-pass parsers of Tesseract's TSV and hOCR output. Only the words of text lines are
+// extracted, which does not warrant building a document tree
+final class TesseractOutputParser {
+  // Columns: level, page_num, block_num, par_num, line_num, word_num, left, top, width, height,
+  // conf, text
+  private static final int TSV_NUM_COLUMNS = 12;
+  private static final int TSV_LEVEL_WORD = 5;
+  private static final int TSV_COL_BLOCK_NUM = 2;
+  private static final int TSV_COL_PAR_NUM = 3;
+  private static final int TSV_COL_LINE_NUM = 4;
+  private static final int TSV_COL_LEFT = 6;
+  private static final int TSV_COL_TOP = 7;
+  private static final int TSV_COL_WIDTH = 8;
+  private static final int TSV_COL_HEIGHT = 9;
+  private static final int TSV_COL_CONF = 10;
+  private static final int TSV_COL_TEXT = 11;
+
+  private static final String HOCR_CLASS_LINE = "ocr_line";
+  private static final String HOCR_CLASS_WORD = "ocrx_word";
+  private static final String HOCR_TITLE_BBOX = "bbox ";
+  private static final String HOCR_TITLE_CONF = "x_wconf ";
+
+  private TesseractOutputParser() {}
+
+  // Raw lines of text, i.e. the concatenated words of each line, and word statistics
+  record ParsedText(List<String> lines, float avgConfidence, Rectangle firstWordBox) {}
+
+  static ParsedText parseTSV(String tsv) {
+    var acc = new Accumulator();
+    var fieldStarts = new int[TSV_NUM_COLUMNS];
+    var fieldEnds = new int[TSV_NUM_COLUMNS];
+    long currentLineKey = -1;
+
+    var lineStart = 0;
+    var len = tsv.length();
+    while (lineStart < len) {
+      var lineEnd = tsv.indexOf('\n', lineStart);
+      if (lineEnd == -1) {
+        lineEnd = len;
+      }
+      var contentEnd =
+        lineEnd > lineStart && tsv.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+      // Skips the header and anything else that is not a well-formed word row
+      if (
+        splitTSVRow(tsv, lineStart, contentEnd, fieldStarts, fieldEnds)
+        && isDigits(tsv, fieldStarts[0], fieldEnds[0])
+        && parseInt(tsv, fieldStarts, fieldEnds, 0) == TSV_LEVEL_WORD
+      ) {
+        var lineKey = ((long) parseInt(tsv, fieldStarts, fieldEnds, TSV_COL_BLOCK_NUM) << 42)
+          | ((long) parseInt(tsv, fieldStarts, fieldEnds, TSV_COL_PAR_NUM) << 21)
+          | parseInt(tsv, fieldStarts, fieldEnds, TSV_COL_LINE_NUM);
+        if (lineKey != currentLineKey) {
+          acc.endLine();
+          currentLineKey = lineKey;
+        }
+        if (acc.firstWordBox == null) {
+          var left = parseInt(tsv, fieldStarts, fieldEnds, TSV_COL_LEFT);
+          var top = parseInt(tsv, fieldStarts, fieldEnds, TSV_COL_TOP);
+          acc.firstWordBox = Rectangle.ofEdges(
+            left,
+            top,
+            left + parseInt(tsv, fieldStarts, fieldEnds, TSV_COL_WIDTH),
+            top + parseInt(tsv, fieldStarts, fieldEnds, TSV_COL_HEIGHT)
+          );
+        }
+        acc.addConfidence(parseConfidence(tsv, fieldStarts[TSV_COL_CONF], fieldEnds[TSV_COL_CONF]));
+        acc.line.append(tsv, fieldStarts[TSV_COL_TEXT], fieldEnds[TSV_COL_TEXT]);
+      }
+
+      lineStart = lineEnd + 1;
+    }
+    acc.endLine();
+    return acc.result();
+  }
+
+  // Parses the words within `ocr_line` elements. Relies on the structure of Tesseract's output:
+  // lines and words are `span`s, and word text contains no markup other than formatting tags
+  static ParsedText parseHOCR(String hocr) {
+    var acc = new Accumulator();
+    // Kinds of the currently open `span`s
+    var openSpans = new ArrayList<SpanKind>();
+    var wordText = new StringBuilder();
+    var inLine = false;
+    var inWord = false;
+
+    var pos = 0;
+    var len = hocr.length();
+    while (pos < len) {
+      var tagStart = hocr.indexOf('<', pos);
+      if (tagStart == -1) {
+        tagStart = len;
+      }
+      if (inWord && tagStart > pos) {
+        wordText.append(hocr, pos, tagStart);
+      }
+      if (tagStart == len) {
+        break;
+      }
+      var tagEnd = hocr.indexOf('>', tagStart);
+      if (tagEnd == -1) {
+        break;
+      }
+
+      if (hocr.startsWith("<span", tagStart)) {
+        var cls = attributeValue(hocr, tagStart, tagEnd, "class");
+        var kind = SpanKind.OTHER;
+        if (inLine && HOCR_CLASS_WORD.equals(cls)) {
+          kind = SpanKind.WORD;
+          inWord = true;
+          wordText.setLength(0);
+          var title = attributeValue(hocr, tagStart, tagEnd, "title");
+          if (title != null) {
+            addWordTitle(acc, title);
+          }
+        } else if (HOCR_CLASS_LINE.equals(cls)) {
+          kind = SpanKind.LINE;
+          inLine = true;
+        }
+        if (hocr.charAt(tagEnd - 1) != '/') {
+          openSpans.add(kind);
+        }
+      } else if (hocr.startsWith("</span", tagStart) && !openSpans.isEmpty()) {
+        switch (openSpans.removeLast()) {
+          case WORD -> {
+            inWord = false;
+            appendNormalizedText(acc.line, wordText);
+          }
+          case LINE -> {
+            inLine = false;
+            acc.endLine();
+          }
+          case OTHER -> {}
+        }
+      }
+
+      pos = tagEnd + 1;
+    }
+    acc.endLine();
+    return acc.result();
+  }
+
+  private enum SpanKind { LINE, WORD, OTHER }
+
+  private static final class Accumulator {
+    private final List<String> lines = new ArrayList<>();
+    private final StringBuilder line = new StringBuilder();
+    private Rectangle firstWordBox;
+    private int sumConfidences;
+    private int numConfidences;
+
+    void addConfidence(int confidence) {
+      sumConfidences += confidence;
+      numConfidences++;
+    }
+
+    void endLine() {
+      if (!line.isEmpty()) {
+        lines.add(line.toString());
+        line.setLength(0);
+      }
+    }
+
+    ParsedText result() {
+      return new ParsedText(lines, (float) sumConfidences / numConfidences, firstWordBox);
+    }
+  }
+
+  private static boolean splitTSVRow(String s, int start, int end, int[] starts, int[] ends) {
+    var fieldStart = start;
+    for (var i = 0; i < TSV_NUM_COLUMNS; i++) {
+      // The text column is the last one and can contain anything but a newline
+      var fieldEnd = i == TSV_NUM_COLUMNS - 1 ? end : s.indexOf('\t', fieldStart);
+      if (fieldEnd == -1 || fieldEnd > end) {
+        return false;
+      }
+      starts[i] = fieldStart;
+      ends[i] = fieldEnd;
+      fieldStart = fieldEnd + 1;
+    }
+    return true;
+  }
+
+  private static boolean isDigits(String s, int start, int end) {
+    if (start == end) {
+      return false;
+    }
+    for (var i = start; i < end; i++) {
+      if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int parseInt(String s, int[] starts, int[] ends, int col) {
+    return Integer.parseInt(s, starts[col], ends[col], 10);
+  }
+
+  // Truncates to the integer part, matching the confidence reported in hOCR output
+  private static int parseConfidence(String s, int start, int end) {
+    var dotIdx = s.indexOf('.', start);
+    return Integer.parseInt(s, start, dotIdx == -1 || dotIdx > end ? end : dotIdx, 10);
+  }
+
+  // Handles a word's `title` attribute, e.g. "bbox 10 20 30 40; x_wconf 95"
+  private static void addWordTitle(Accumulator acc, String title) {
+    if (acc.firstWordBox == null) {
+      var bboxIdx = title.indexOf(HOCR_TITLE_BBOX);
+      if (bboxIdx != -1) {
+        var edges = new int[4];
+        var numStart = bboxIdx + HOCR_TITLE_BBOX.length();
+        for (var i = 0; i < edges.length; i++) {
+          var numEnd = numStart;
+          while (numEnd < title.length() && Character.isDigit(title.charAt(numEnd))) {
+            numEnd++;
+          }
+          edges[i] = Integer.parseInt(title, numStart, numEnd, 10);
+          numStart = numEnd + 1;
+        }
+        acc.firstWordBox = Rectangle.ofEdges(edges[0], edges[1], edges[2], edges[3]);
+      }
+    }
+    var confIdx = title.indexOf(HOCR_TITLE_CONF);
+    if (confIdx != -1) {
+      var numStart = confIdx + HOCR_TITLE_CONF.length();
+      var numEnd = numStart;
+      while (numEnd < title.length() && Character.isDigit(title.charAt(numEnd))) {
+        numEnd++;
+      }
+      acc.addConfidence(Integer.parseInt(title, numStart, numEnd, 10));
+    }
+  }
+
+  // Returns the value of an attribute of the tag spanning `tagStart`..`tagEnd`, quoted with either
+  // single or double quotes
+  private static String attributeValue(String s, int tagStart, int tagEnd, String name) {
+    var idx = tagStart;
+    while (true) {
+      idx = s.indexOf(name, idx);
+      if (idx == -1 || idx >= tagEnd) {
+        return null;
+      }
+      var eqIdx = idx + name.length();
+      if (
+        Character.isWhitespace(s.charAt(idx - 1))
+        && eqIdx + 1 < tagEnd
+        && s.charAt(eqIdx) == '='
+      ) {
+        var quote = s.charAt(eqIdx + 1);
+        var valueEnd = s.indexOf(quote, eqIdx + 2);
+        return valueEnd == -1 || valueEnd > tagEnd ? null : s.substring(eqIdx + 2, valueEnd);
+      }
+      idx = eqIdx;
+    }
+  }
+
+  // Appends the text with character references decoded and whitespace collapsed and trimmed
+  private static void appendNormalizedText(StringBuilder dst, CharSequence raw) {
+    var pendingSpace = false;
+    var appendedAny = false;
+    var len = raw.length();
+    for (var i = 0; i < len; i++) {
+      var c = raw.charAt(i);
+      if (Character.isWhitespace(c)) {
+        pendingSpace = appendedAny;
+        continue;
+      }
+      if (pendingSpace) {
+        dst.append(' ');
+        pendingSpace = false;
+      }
+      appendedAny = true;
+      if (c == '&') {
+        var refEnd = indexOf(raw, ';', i + 1, len);
+        if (refEnd != -1) {
+          var decoded = decodeCharacterReference(raw, i + 1, refEnd);
+          if (decoded != -1) {
+            dst.appendCodePoint(decoded);
+            i = refEnd;
+            continue;
+          }
+        }
+      }
+      dst.append(c);
+    }
+  }
+
+  private static int decodeCharacterReference(CharSequence s, int start, int end) {
+    var ref = s.subSequence(start, end).toString();
+    return switch (ref) {
+      case "amp"  -> '&';
+      case "lt"   -> '<';
+      case "gt"   -> '>';
+      case "quot" -> '"';
+      case "apos" -> '\'';
+      default -> {
+        if (ref.length() < 2 || ref.charAt(0) != '#') {
+          yield -1;
+        }
+        try {
+          yield ref.charAt(1) == 'x' || ref.charAt(1) == 'X'
+            ? Integer.parseInt(ref, 2, ref.length(), 16)
+            : Integer.parseInt(ref, 1, ref.length(), 10);
+        } catch (NumberFormatException e) {
+          yield -1;
+        }
+      }
+    };
+  }
+
+  private static int indexOf(CharSequence s, char c, int from, int to) {
+    for (var i = from; i < to; i++) {
+      if (s.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -2,17 +2,22 @@ package io.github.kamitejp.chunk;
 
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Stream;
 
+import io.github.kamitejp.diagnostics.RecognitionTrace;
+import io.github.kamitejp.platform.dependencies.tesseract.TesseractResult;
 import io.github.kamitejp.recognition.Recognizer;
 
 public final class UnprocessedChunkVariants {
   private static final int CHUNK_SCORE_BONUS_PER_DUPLICATE = 5;
+  // With two variants, the heavier one would win every vote
+  private static final int MIN_VARIANTS_FOR_CONSENSUS = 3;
+  private static final String CONSENSUS_LABEL = "consensus";
 
   private List<Chunk> variants;
 
@@ -24,15 +29,27 @@ public final class UnprocessedChunkVariants {
     return new UnprocessedChunkVariants(Stream.of(new Chunk(s, "single", 150)).collect(toList()));
   }
 
-  public static UnprocessedChunkVariants fromLabelledTesseractHOCROutputs(
-      List<Recognizer.LabelledTesseractHOCROutput> outputs) {
-    return new UnprocessedChunkVariants(
-      outputs.stream()
-        .map(o -> Chunk.fromHOCRWithLabel(o.hocr(), o.label()))
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .collect(toList())
-    );
+  public static UnprocessedChunkVariants empty() {
+    return new UnprocessedChunkVariants(new ArrayList<>());
+  }
+
+  // Parses and adds a Tesseract output variant. Returns the number of variants with the same
+  // content, including the added one, or 0 if the output was rejected
+  public int addFromLabelledTesseractOutput(Recognizer.LabelledTesseractOutput output) {
+    var maybeChunk = switch (output.output()) {
+      case TesseractResult.TSV tsv   -> Chunk.fromTSVWithLabel(tsv.tsv(), output.label());
+      case TesseractResult.HOCR hocr -> Chunk.fromHOCRWithLabel(hocr.hocr(), output.label());
+    };
+    if (maybeChunk.isEmpty()) {
+      return 0;
+    }
+    var chunk = maybeChunk.get();
+    variants.add(chunk);
+    return (int) variants.stream().filter(v -> v.getContent().equals(chunk.getContent())).count();
+  }
+
+  public UnprocessedChunkVariants copied() {
+    return new UnprocessedChunkVariants(variants.stream().map(Chunk::copied).collect(toList()));
   }
 
   public void add(int index, String content, String label, int score) {
@@ -47,6 +64,20 @@ public final class UnprocessedChunkVariants {
     variants.sort(comparing(Chunk::getScore).reversed());
   }
 
+  // Labels of the top-scored variant. Meaningful after `sortByScore()`
+  public List<String> getTopLabels() {
+    return variants.isEmpty() ? List.of() : variants.getFirst().getLabels();
+  }
+
+  // Labels of the variants whose content no other variant has. Meaningful after `deduplicate()`
+  public List<String> getUniqueLabels() {
+    return variants.stream()
+      .map(Chunk::getLabels)
+      .filter(labels -> labels.size() == 1)
+      .map(List::getFirst)
+      .collect(toList());
+  }
+
   public void deduplicate() {
     variants = variants.stream()
       .collect(groupingBy(Chunk::getContent))
@@ -69,16 +100,37 @@ public final class UnprocessedChunkVariants {
       .collect(toList());
   }
 
+  // Adds, as the top variant, one fused from all the variants by character-level voting, unless
+  // it has the same content as one of them. Meaningful after `sortByScore()`, since the alignment
+  // is anchored on the top-scored variant
+  public void addConsensus() {
+    if (variants.size() < MIN_VARIANTS_FOR_CONSENSUS) {
+      return;
+    }
+    var event = RecognitionTrace.stage("variant-fusion");
+    var codePoints = new int[variants.size()][];
+    var weights = new int[variants.size()];
+    for (var i = 0; i < variants.size(); i++) {
+      codePoints[i] = variants.get(i).getContent().codePoints().toArray();
+      weights[i] = Math.max(1, variants.get(i).getScore());
+    }
+    var fused = VariantAlignment.fuse(codePoints, weights);
+    if (
+      !fused.isBlank()
+      && variants.stream().noneMatch(v -> v.getContent().equals(fused))
+    ) {
+      variants.addFirst(new Chunk(fused, CONSENSUS_LABEL, variants.getFirst().getScore()));
+    }
+    event.finish(0, 0, () -> Integer.toString(variants.size()));
+  }
+
   public List<ProcessedChunk> process(
     ChunkCorrectionPolicy correctionPolicy, ChunkTransformer transformer
   ) {
+    var event = RecognitionTrace.stage("chunk-processing");
     var processedChunks = new ArrayList<ProcessedChunk>(variants.size());
 
-    var moreThanOneVariant = variants.size() > 1;
-
-    for (int i = 0; i < variants.size(); i++) {
-      var variant = variants.get(i);
-
+    for (var variant : variants) {
       var processingContent =
         correctionPolicy == ChunkCorrectionPolicy.DO_CORRECT
         ? variant.getCorrectedContent()
@@ -89,51 +141,63 @@ public final class UnprocessedChunkVariants {
       }
 
       variant.modifyContent(processingContent);
+    }
+
+    // Compared post-correction and post-transformation, since that is the content displayed
+    var disagreementIndices =
+      variants.size() > 1 ? getInterVariantDisagreementIndices() : null;
+
+    for (int i = 0; i < variants.size(); i++) {
+      var variant = variants.get(i);
 
       // Reject blank text post-correction and post-transformation
-      if (processingContent.isBlank()) {
+      if (variant.getContent().isBlank()) {
         continue;
       }
 
       var enhancements =
-        moreThanOneVariant
-        ? ChunkEnhancements.ofInterVariantUniqueCharacterIndices(
-            getInterVariantUniqueCharacterIndices(i)
-          )
+        disagreementIndices != null
+        ? ChunkEnhancements.ofInterVariantUniqueCharacterIndices(disagreementIndices.get(i))
         : ChunkEnhancements.empty();
 
       processedChunks.add(ProcessedChunk.fromChunk(variant, enhancements));
     }
 
+    event.finish(0, 0, () -> variants.stream()
+      .flatMap(v -> v.getLabels().stream())
+      .distinct()
+      .collect(joining(","))
+    );
     return processedChunks;
   }
 
-  // Marks characters in a given variant that don't appear in any other variant
-  private List<Integer> getInterVariantUniqueCharacterIndices(int variantIdx) {
-    var variantContent = variants.get(variantIdx).getContent();
-    var indices = new ArrayList<Integer>(variantContent.length());
-    var variantChars = variantContent.chars().mapToObj(ch -> (char) ch).collect(toList());
-    for (int chIdx = 0; chIdx < variantChars.size(); chIdx++) {
-      var ch = variantChars.get(chIdx);
-      if (ch == '\n') {
+  // For each variant, the indices of characters that no other variant agrees with at the aligned
+  // position. The indices are of UTF-16 units, as the client splits the content into those, so
+  // both units of a surrogate pair are marked
+  private List<List<Integer>> getInterVariantDisagreementIndices() {
+    var codePoints = new int[variants.size()][];
+    for (var i = 0; i < variants.size(); i++) {
+      codePoints[i] = variants.get(i).getContent().codePoints().toArray();
+    }
+    var agreements = VariantAlignment.agreements(codePoints);
+
+    var res = new ArrayList<List<Integer>>(variants.size());
+    for (var v = 0; v < variants.size(); v++) {
+      var indices = new ArrayList<Integer>();
+      var charIdx = 0;
+      for (var i = 0; i < codePoints[v].length; i++) {
+        var cp = codePoints[v][i];
+        var numChars = Character.charCount(cp);
         // Don't mark newlines
-        continue;
-      }
-      var foundAnotherOccurrenceOfCh = false;
-      for (var i = 0; i < variants.size(); i++) {
-        if (i == variantIdx) {
-          // Don't compare the current variant with itself
-          continue;
-        }
-        if (variants.get(i).getContent().contains(String.valueOf(ch))) {
-          foundAnotherOccurrenceOfCh = true;
-          break;
+        if (!agreements[v][i] && cp != '\n') {
+          for (var c = 0; c < numChars; c++) {
+            indices.add(charIdx + c);
+          }
         }
+        charIdx += numChars;
       }
-      if (!foundAnotherOccurrenceOfCh) {
-        indices.add(chIdx);
-      }
+      res.add(indices);
     }
-    return indices;
+    return res;
   }
 }
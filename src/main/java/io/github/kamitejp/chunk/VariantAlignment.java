@@ -0,0 +1,189 @@
+package io.github.kamitejp.chunk;
+
+import java.util.Arrays;
+
+// Code point-level alignment of OCR variants of the same text, based on the edit distance
+// computed within a band around the diagonal. Variants of one chunk differ in a handful of
+// characters at most, so the band keeps the alignment close to linear in the text length
+final class VariantAlignment {
+  // Marks a code point with no counterpart in the other sequence
+  static final int GAP = -1;
+
+  // Band half-width on top of the difference in length between the aligned sequences
+  private static final int BAND_SLACK = 8;
+  private static final int INF = Integer.MAX_VALUE / 2;
+
+  private static final byte OP_DIAGONAL = 0;
+  private static final byte OP_DELETE = 1;
+  private static final byte OP_INSERT = 2;
+
+  private VariantAlignment() {}
+
+  // For each code point of `a`, returns the index of the code point of `b` it is aligned with
+  // (equal or substituted), or `GAP` if it is deleted. Code points of `b` that no code point of `a`
+  // is aligned with are insertions
+  static int[] align(int[] a, int[] b) {
+    var la = a.length;
+    var lb = b.length;
+    var k = Math.abs(la - lb) + BAND_SLACK;
+    var width = 2 * k + 1;
+
+    // Cell (i, j) is at offset `j - i + k` within its row
+    var prev = new int[width];
+    var curr = new int[width];
+    var ops = new byte[(la + 1) * width];
+
+    Arrays.fill(prev, INF);
+    for (var j = 0; j <= Math.min(lb, k); j++) {
+      prev[j + k] = j;
+      ops[j + k] = OP_INSERT;
+    }
+    for (var i = 1; i <= la; i++) {
+      Arrays.fill(curr, INF);
+      var rowOps = i * width;
+      for (var j = Math.max(0, i - k); j <= Math.min(lb, i + k); j++) {
+        var off = j - i + k;
+        var best = INF;
+        var op = OP_DIAGONAL;
+        if (j > 0) {
+          best = prev[off] + (a[i - 1] == b[j - 1] ? 0 : 1);
+        }
+        if (off + 1 < width && prev[off + 1] + 1 < best) {
+          best = prev[off + 1] + 1;
+          op = OP_DELETE;
+        }
+        if (off > 0 && curr[off - 1] + 1 < best) {
+          best = curr[off - 1] + 1;
+          op = OP_INSERT;
+        }
+        curr[off] = best;
+        ops[rowOps + off] = op;
+      }
+      var tmp = prev;
+      prev = curr;
+      curr = tmp;
+    }
+
+    var aToB = new int[la];
+    var i = la;
+    var j = lb;
+    while (i > 0) {
+      switch (ops[i * width + j - i + k]) {
+        case OP_DIAGONAL -> aToB[--i] = --j;
+        case OP_DELETE   -> aToB[--i] = GAP;
+        default          -> j--;
+      }
+    }
+    return aToB;
+  }
+
+  // For each code point of each variant, whether some other variant has the same code point
+  // aligned with it
+  static boolean[][] agreements(int[][] variants) {
+    var res = new boolean[variants.length][];
+    for (var v = 0; v < variants.length; v++) {
+      res[v] = new boolean[variants[v].length];
+    }
+    for (var v = 0; v < variants.length; v++) {
+      for (var w = v + 1; w < variants.length; w++) {
+        var aToB = align(variants[v], variants[w]);
+        for (var i = 0; i < aToB.length; i++) {
+          if (aToB[i] != GAP && variants[v][i] == variants[w][aToB[i]]) {
+            res[v][i] = true;
+            res[w][aToB[i]] = true;
+          }
+        }
+      }
+    }
+    return res;
+  }
+
+  // ROVER-style fusion. Every variant is aligned to the pivot (the first one), which gives, for
+  // each pivot code point, a column of candidate code points (or gaps), and, before each of them
+  // and at the end, a slot of candidate inserted sequences (possibly empty). In each column and
+  // slot, the candidate with the largest total weight of the variants backing it wins, the one
+  // backed by the earliest variant on ties
+  static String fuse(int[][] variants, int[] weights) {
+    var pivot = variants[0];
+    var lp = pivot.length;
+    var n = variants.length;
+
+    // Per variant: the code point in each pivot column, and the insertion range of each slot
+    var columns = new int[n][];
+    var slotStarts = new int[n][lp + 1];
+    var slotEnds = new int[n][lp + 1];
+    columns[0] = pivot;
+    for (var p = 0; p <= lp; p++) {
+      slotStarts[0][p] = p;
+      slotEnds[0][p] = p;
+    }
+    for (var v = 1; v < n; v++) {
+      var b = variants[v];
+      var aToB = align(pivot, b);
+      columns[v] = new int[lp];
+      var nextB = 0;
+      for (var p = 0; p < lp; p++) {
+        slotStarts[v][p] = nextB;
+        if (aToB[p] == GAP) {
+          slotEnds[v][p] = nextB;
+          columns[v][p] = GAP;
+        } else {
+          slotEnds[v][p] = aToB[p];
+          columns[v][p] = b[aToB[p]];
+          nextB = aToB[p] + 1;
+        }
+      }
+      slotStarts[v][lp] = nextB;
+      slotEnds[v][lp] = b.length;
+    }
+
+    var sb = new StringBuilder(lp + 8);
+    for (var p = 0; p <= lp; p++) {
+      var slotWinner = 0;
+      var slotWinnerWeight = 0;
+      for (var v = 0; v < n; v++) {
+        var weight = 0;
+        for (var w = 0; w < n; w++) {
+          if (
+            Arrays.equals(
+              variants[v], slotStarts[v][p], slotEnds[v][p],
+              variants[w], slotStarts[w][p], slotEnds[w][p]
+            )
+          ) {
+            weight += weights[w];
+          }
+        }
+        if (weight > slotWinnerWeight) {
+          slotWinner = v;
+          slotWinnerWeight = weight;
+        }
+      }
+      for (var i = slotStarts[slotWinner][p]; i < slotEnds[slotWinner][p]; i++) {
+        sb.appendCodePoint(variants[slotWinner][i]);
+      }
+
+      if (p == lp) {
+        break;
+      }
+      var colWinner = GAP;
+      var colWinnerWeight = 0;
+      for (var v = 0; v < n; v++) {
+        var cp = columns[v][p];
+        var weight = 0;
+        for (var w = 0; w < n; w++) {
+          if (columns[w][p] == cp) {
+            weight += weights[w];
+          }
+        }
+        if (weight > colWinnerWeight) {
+          colWinner = cp;
+          colWinnerWeight = weight;
+        }
+      }
+      if (colWinner != GAP) {
+        sb.appendCodePoint(colWinner);
+      }
+    }
+    return sb.toString();
+  }
+}
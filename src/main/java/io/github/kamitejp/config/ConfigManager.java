@@ -269,8 +269,41 @@ public final class ConfigManager {
     });
 
     validateStringNullOrNonEmpty(config.ocr().watchDir(), "ocr.watchDir");
+    validateStringNullOrOneOf(
+      config.ocr().batch().autoBlockHeuristic(),
+      List.of("manga_full", "manga_single_column", "game_textbox"),
+      "ocr.batch.autoBlockHeuristic"
+    );
+    if (config.ocr().batch().parallelism() != null) {
+      validateIntNotLessThan(config.ocr().batch().parallelism(), 1, "ocr.batch.parallelism");
+    }
+    validateIntNotLessThan(
+      config.ocr().tesseract().latencyBudgetMS(), 500, "ocr.tesseract.latencyBudgetMS"
+    );
+    validateIntNotLessThan(
+      config.ocr().tesseract().consensusVariants(), 0, "ocr.tesseract.consensusVariants"
+    );
+    var variantPruning = config.ocr().tesseract().variantPruning();
+    validateDoubleBetween(
+      variantPruning.minContributionRate(), 0, 1, "ocr.tesseract.variantPruning.minContributionRate"
+    );
+    validateIntNotLessThan(
+      variantPruning.minSamples(), 1, "ocr.tesseract.variantPruning.minSamples"
+    );
+    validateIntNotLessThan(
+      variantPruning.resampleInterval(), 2, "ocr.tesseract.variantPruning.resampleInterval"
+    );
     validateStringNullOrNonEmpty(config.ocr().mangaocr().pythonPath(), "ocr.mangaocr.pythonPath");
+    validateIntNotLessThan(config.ocr().cache().maxEntries(), 1, "ocr.cache.maxEntries");
     validateIntOneOf(config.ocr().ocrspace().engine(), List.of(1, 3), "ocr.ocrspace.engine");
+    var regionWatch = config.ocr().regionWatch();
+    validateIntNotLessThan(regionWatch.intervalMS(), 50, "ocr.regionWatch.intervalMS");
+    validateIntNotLessThan(regionWatch.stablePolls(), 1, "ocr.regionWatch.stablePolls");
+    var pageArea = config.ocr().pageArea();
+    if (pageArea != null) {
+      validateIntNotLessThan(pageArea.width(), 1, "ocr.pageArea.width");
+      validateIntNotLessThan(pageArea.height(), 1, "ocr.pageArea.height");
+    }
 
     validateExtraList(config.ocr().regions(), "ocr.regions[%d]", (r, key) -> {
       validateSymbolLength(r.symbol(), key.apply("symbol"));
@@ -342,6 +375,13 @@ public final class ConfigManager {
     }
   }
 
+  @SuppressWarnings("SameParameterValue")
+  private static void validateStringNullOrOneOf(String s, List<String> allowed, String key) {
+    if (s != null && !allowed.contains(s)) {
+      throw new ConfigException.BadValue(key, "should be one of: %s".formatted(allowed));
+    }
+  }
+
   @SuppressWarnings("SameParameterValue")
   // NOTE: Uses List instead of Set because that way the error message displays the numbers in
   //       order without extra intervention
@@ -351,6 +391,21 @@ public final class ConfigManager {
     }
   }
 
+  private static void validateIntNotLessThan(int val, int min, String key) {
+    if (val < min) {
+      throw new ConfigException.BadValue(key, "should be at least %d".formatted(min));
+    }
+  }
+
+  @SuppressWarnings("SameParameterValue")
+  private static void validateDoubleBetween(double val, double min, double max, String key) {
+    if (val < min || val > max) {
+      throw new ConfigException.BadValue(
+        key, "should be between %s and %s".formatted(min, max)
+      );
+    }
+  }
+
   @SuppressWarnings("rawtypes")
   private static void validateListNonEmpty(List list, String key) {
     if (list.isEmpty()) {
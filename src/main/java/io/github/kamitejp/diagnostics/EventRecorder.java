@@ -0,0 +1,88 @@
+package io.github.kamitejp.diagnostics;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+// Controls a JDK Flight Recorder recording of the recognition pipeline events, alongside the
+// standard JDK events (GC, CPU load, etc.). The recording is written to a file once stopped
+public final class EventRecorder {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String RECORDINGS_DIRNAME = "recordings";
+  private static final DateTimeFormatter FILENAME_DATE_FORMATTER =
+    DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+  private final Path dirPath;
+  private final Object lock = new Object();
+  private Recording recording;
+
+  public EventRecorder(Optional<Path> dataDirPath) {
+    this.dirPath = dataDirPath
+      .orElseGet(() -> Path.of(System.getProperty("java.io.tmpdir")))
+      .resolve(RECORDINGS_DIRNAME);
+  }
+
+  public boolean isRecording() {
+    synchronized (lock) {
+      return recording != null;
+    }
+  }
+
+  public boolean start() {
+    synchronized (lock) {
+      if (recording != null) {
+        return true;
+      }
+      try {
+        var newRecording = new Recording(Configuration.getConfiguration("default"));
+        newRecording.setName("Kamite");
+        newRecording.enable(RecognitionStageEvent.class);
+        newRecording.enable(OCRSlotWaitEvent.class);
+        newRecording.start();
+        recording = newRecording;
+        LOG.info("Started recording events");
+        return true;
+      } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+        LOG.error("Could not start recording events: {}", e::toString);
+        return false;
+      }
+    }
+  }
+
+  // Returns the path of the file the recording was written to
+  public Optional<Path> stop() {
+    synchronized (lock) {
+      if (recording == null) {
+        return Optional.empty();
+      }
+      try {
+        Files.createDirectories(dirPath);
+        var filePath = dirPath.resolve(
+          "kamite_%s.jfr".formatted(LocalDateTime.now().format(FILENAME_DATE_FORMATTER))
+        );
+        recording.stop();
+        recording.dump(filePath);
+        LOG.info("Stopped recording events. Saved the recording to {}", filePath);
+        return Optional.of(filePath);
+      } catch (IOException e) {
+        LOG.error("Could not save the event recording: {}", e::toString);
+        return Optional.empty();
+      } finally {
+        recording.close();
+        recording = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package io.github.kamitejp.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JDK Flight Recorder event spanning the wait of an OCR engine job for a slot from the OCR
+// governor, along with the state of its queue
+@Name("kamite.OCRSlotWait")
+@Label("OCR Slot Wait")
+@Category({"Kamite", "Recognition"})
+@StackTrace(false)
+public final class OCRSlotWaitEvent extends Event {
+  @Label("Request ID")
+  long requestID;
+
+  @Label("Queue Depth")
+  int queueDepth;
+
+  @Label("Average Wait")
+  @Timespan(Timespan.MILLISECONDS)
+  long averageWaitMS;
+
+  OCRSlotWaitEvent(long requestID) {
+    this.requestID = requestID;
+  }
+
+  // `queueDepth` is the number of jobs still waiting after this one got its slot, and
+  // `averageWaitMS` the average wait of all the jobs so far
+  public void finish(int queueDepth, long averageWaitMS) {
+    end();
+    if (shouldCommit()) {
+      this.queueDepth = queueDepth;
+      this.averageWaitMS = averageWaitMS;
+      commit();
+    }
+  }
+}
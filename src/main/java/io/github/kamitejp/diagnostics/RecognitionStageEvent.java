@@ -0,0 +1,62 @@
+package io.github.kamitejp.diagnostics;
+
+import java.awt.image.BufferedImage;
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder event spanning a single stage of the recognition pipeline, e.g., taking a
+// screenshot or running Tesseract on a group of image variants. Costs next to nothing when not
+// being recorded
+@Name("kamite.RecognitionStage")
+@Label("Recognition Stage")
+@Category({"Kamite", "Recognition"})
+@StackTrace(false)
+public final class RecognitionStageEvent extends Event {
+  @Label("Request ID")
+  long requestID;
+
+  @Label("Stage")
+  String stage;
+
+  @Label("Image Width")
+  int imageWidth;
+
+  @Label("Image Height")
+  int imageHeight;
+
+  @Label("Variant Labels")
+  String variantLabels;
+
+  RecognitionStageEvent(long requestID, String stage) {
+    this.requestID = requestID;
+    this.stage = stage;
+  }
+
+  public void finish() {
+    finish(0, 0, null);
+  }
+
+  public void finish(BufferedImage img) {
+    if (img == null) {
+      finish();
+    } else {
+      finish(img.getWidth(), img.getHeight(), null);
+    }
+  }
+
+  // The variant labels are only computed if the event is actually going to be recorded
+  public void finish(int imageWidth, int imageHeight, Supplier<String> variantLabels) {
+    end();
+    if (shouldCommit()) {
+      this.imageWidth = imageWidth;
+      this.imageHeight = imageHeight;
+      this.variantLabels = variantLabels != null ? variantLabels.get() : null;
+      commit();
+    }
+  }
+}
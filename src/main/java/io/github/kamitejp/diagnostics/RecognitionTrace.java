@@ -0,0 +1,51 @@
+package io.github.kamitejp.diagnostics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Assigns recognition requests IDs that tie together the events (`RecognitionStageEvent`,
+// `OCRSlotWaitEvent`) emitted while handling them. The ID of the current request is bound to the
+// thread handling it; work moved to other threads has to pass it explicitly
+public final class RecognitionTrace {
+  // Marks events emitted outside of any recognition request
+  public static final long NO_REQUEST_ID = 0;
+
+  private static final AtomicLong lastRequestID = new AtomicLong();
+  private static final ThreadLocal<Long> currentRequestID = new ThreadLocal<>();
+
+  private RecognitionTrace() {}
+
+  public static long beginRequest() {
+    var id = lastRequestID.incrementAndGet();
+    currentRequestID.set(id);
+    return id;
+  }
+
+  public static void endRequest() {
+    currentRequestID.remove();
+  }
+
+  public static long currentRequestID() {
+    var id = currentRequestID.get();
+    return id != null ? id : NO_REQUEST_ID;
+  }
+
+  // Starts timing a stage of the current request. It has to be finished with
+  // `RecognitionStageEvent.finish()`
+  public static RecognitionStageEvent stage(String name) {
+    return stage(currentRequestID(), name);
+  }
+
+  public static RecognitionStageEvent stage(long requestID, String name) {
+    var event = new RecognitionStageEvent(requestID, name);
+    event.begin();
+    return event;
+  }
+
+  // Starts timing the wait of an OCR engine job of the given request for a slot. It has to be
+  // finished with `OCRSlotWaitEvent.finish()`
+  public static OCRSlotWaitEvent slotWait(long requestID) {
+    var event = new OCRSlotWaitEvent(requestID);
+    event.begin();
+    return event;
+  }
+}
@@ -0,0 +1,82 @@
+package io.github.kamitejp.geometry;
+
+import java.util.Arrays;
+
+// Items with a horizontal position that can change, e.g., columns of text whose position is the
+// running average of their parts, kept sorted by position for finding the one nearest to a given
+// x-coordinate. Items are identified by non-negative ids, and among items equally near, the one
+// with the lowest id is chosen
+public final class ColumnIndex {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private float[] xs = new float[INITIAL_CAPACITY];
+  private int[] ids = new int[INITIAL_CAPACITY];
+  private int size;
+
+  public void add(int id, float x) {
+    if (size == xs.length) {
+      xs = Arrays.copyOf(xs, size * 2);
+      ids = Arrays.copyOf(ids, size * 2);
+    }
+    insertAt(insertionPoint(x, id), id, x);
+  }
+
+  public void move(int id, float oldX, float newX) {
+    var pos = insertionPoint(oldX, id);
+    if (pos >= size || ids[pos] != id) {
+      throw new IllegalArgumentException("Item is not in the column index at the given position");
+    }
+    System.arraycopy(xs, pos + 1, xs, pos, size - pos - 1);
+    System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+    size--;
+    insertAt(insertionPoint(newX, id), id, newX);
+  }
+
+  // The id of the item nearest to `x` and at most `tolerance` away from it, or -1 if there is none
+  public int nearest(float x, double tolerance) {
+    var pos = insertionPoint(x, Integer.MIN_VALUE);
+    var bestDist = Double.POSITIVE_INFINITY;
+    if (pos > 0) {
+      bestDist = Math.abs(xs[pos - 1] - x);
+    }
+    if (pos < size) {
+      bestDist = Math.min(bestDist, Math.abs(xs[pos] - x));
+    }
+    if (bestDist > tolerance) {
+      return -1;
+    }
+
+    // Items at the best distance form a run on either side of `pos`
+    var bestId = Integer.MAX_VALUE;
+    for (var i = pos - 1; i >= 0 && Math.abs(xs[i] - x) == bestDist; i--) {
+      bestId = Math.min(bestId, ids[i]);
+    }
+    for (var i = pos; i < size && Math.abs(xs[i] - x) == bestDist; i++) {
+      bestId = Math.min(bestId, ids[i]);
+    }
+    return bestId;
+  }
+
+  // The first position whose item is ordered at or after (x, id)
+  private int insertionPoint(float x, int id) {
+    var lo = 0;
+    var hi = size;
+    while (lo < hi) {
+      var mid = (lo + hi) >>> 1;
+      if (xs[mid] < x || xs[mid] == x && ids[mid] < id) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private void insertAt(int pos, int id, float x) {
+    System.arraycopy(xs, pos, xs, pos + 1, size - pos);
+    System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+    xs[pos] = x;
+    ids[pos] = id;
+    size++;
+  }
+}
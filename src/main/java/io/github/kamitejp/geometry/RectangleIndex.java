@@ -0,0 +1,129 @@
+package io.github.kamitejp.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Uniform grid over the centers of a fixed set of rectangles, for queries about rectangles whose
+// centers lie near a point or within an area. The grid is stored compactly: the indices of the
+// rectangles are sorted by cell, and each cell is a range of that array. Query results are in the
+// order of the original list
+public final class RectangleIndex {
+  private final List<Rectangle> rects;
+  private final int[] centerX;
+  private final int[] centerY;
+  private final int cellSize;
+  private final int originX;
+  private final int originY;
+  private final int cols;
+  private final int rows;
+  // Cell -> the start of its range in `cellItems`, with the end of the range at the next cell
+  private final int[] cellStart;
+  private final int[] cellItems;
+
+  public RectangleIndex(List<Rectangle> rects, int cellSize) {
+    if (cellSize < 1) {
+      throw new IllegalArgumentException("Rectangle index cell size must be positive");
+    }
+    this.rects = rects;
+    this.cellSize = cellSize;
+    var n = rects.size();
+    centerX = new int[n];
+    centerY = new int[n];
+    var minX = Integer.MAX_VALUE;
+    var minY = Integer.MAX_VALUE;
+    var maxX = Integer.MIN_VALUE;
+    var maxY = Integer.MIN_VALUE;
+    for (var i = 0; i < n; i++) {
+      var center = rects.get(i).getCenter();
+      centerX[i] = center.x();
+      centerY[i] = center.y();
+      minX = Math.min(minX, center.x());
+      minY = Math.min(minY, center.y());
+      maxX = Math.max(maxX, center.x());
+      maxY = Math.max(maxY, center.y());
+    }
+    originX = n == 0 ? 0 : minX;
+    originY = n == 0 ? 0 : minY;
+    cols = n == 0 ? 0 : (maxX - minX) / cellSize + 1;
+    rows = n == 0 ? 0 : (maxY - minY) / cellSize + 1;
+
+    // Counting sort of the rectangles by cell
+    cellStart = new int[cols * rows + 1];
+    var cellOf = new int[n];
+    for (var i = 0; i < n; i++) {
+      cellOf[i] = (centerY[i] - originY) / cellSize * cols + (centerX[i] - originX) / cellSize;
+      cellStart[cellOf[i] + 1]++;
+    }
+    for (var c = 0; c < cols * rows; c++) {
+      cellStart[c + 1] += cellStart[c];
+    }
+    cellItems = new int[n];
+    var fill = Arrays.copyOf(cellStart, cols * rows);
+    for (var i = 0; i < n; i++) {
+      cellItems[fill[cellOf[i]]++] = i;
+    }
+  }
+
+  public int size() {
+    return rects.size();
+  }
+
+  // Rectangles whose centers are at most `radius` away from `p`
+  public List<Rectangle> withinDistance(Point p, int radius) {
+    var radiusSq = (long) radius * radius;
+    return collect(p.x() - radius, p.y() - radius, p.x() + radius, p.y() + radius, i -> {
+      long dx = centerX[i] - p.x();
+      long dy = centerY[i] - p.y();
+      return dx * dx + dy * dy <= radiusSq;
+    });
+  }
+
+  // Rectangles whose centers lie within `area`
+  public List<Rectangle> centersWithin(Rectangle area) {
+    return collect(area.getLeft(), area.getTop(), area.getRight(), area.getBottom(), i ->
+      centerX[i] >= area.getLeft() && centerX[i] <= area.getRight()
+      && centerY[i] >= area.getTop() && centerY[i] <= area.getBottom()
+    );
+  }
+
+  @FunctionalInterface
+  private interface IndexPredicate {
+    boolean test(int i);
+  }
+
+  // Visits the cells overlapping the given bounds and collects the rectangles accepted by the
+  // predicate
+  private List<Rectangle> collect(
+    int left, int top, int right, int bottom, IndexPredicate predicate
+  ) {
+    var firstCol = Math.max(0, Math.floorDiv(left - originX, cellSize));
+    var lastCol = Math.min(cols - 1, Math.floorDiv(right - originX, cellSize));
+    var firstRow = Math.max(0, Math.floorDiv(top - originY, cellSize));
+    var lastRow = Math.min(rows - 1, Math.floorDiv(bottom - originY, cellSize));
+
+    var found = new int[16];
+    var numFound = 0;
+    for (var row = firstRow; row <= lastRow; row++) {
+      for (var col = firstCol; col <= lastCol; col++) {
+        var cell = row * cols + col;
+        for (var j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+          var i = cellItems[j];
+          if (predicate.test(i)) {
+            if (numFound == found.length) {
+              found = Arrays.copyOf(found, numFound * 2);
+            }
+            found[numFound++] = i;
+          }
+        }
+      }
+    }
+
+    Arrays.sort(found, 0, numFound);
+    var res = new ArrayList<Rectangle>(numFound);
+    for (var j = 0; j < numFound; j++) {
+      res.add(rects.get(found[j]));
+    }
+    return res;
+  }
+}
@@ -0,0 +1,134 @@
+package io.github.kamitejp.image;
+
+import java.util.Arrays;
+
+// Scanline flood fill over a grayscale image represented as a row-major array of gray levels (see
+// `GrayArrayOps`). Rather than visiting pixels one by one, each popped seed is extended into the
+// whole horizontal run of matching pixels, and only the starts of matching runs in the rows above
+// and below are pushed. Seeds are kept on a primitive stack as packed pixel indices.
+//
+// Successive calls to `fill()` on the same instance behave as independent fills of the same image:
+// a later fill can cross the pixels filled by an earlier one if the fill value is within its own
+// tolerance, and can thereby reach further than the earlier one did. To avoid redoing work, a fill
+// is skipped when its seed was filled by an earlier fill with the same tolerance range and the
+// image has not changed since, as it would then cover exactly the same pixels again
+public final class FloodFill {
+  private static final int INITIAL_STACK_CAPACITY = 256;
+  private static final int INITIAL_FILLS_CAPACITY = 16;
+
+  private final int[] img;
+  private final int w;
+  // Pixel -> the number of the last fill that filled it (counting from 1), or 0 if none did
+  private final int[] filledBy;
+  private int numFills;
+  // Fill number -> its tolerance range and the number of pixel changes made up to its end
+  private int[] fillMin = new int[INITIAL_FILLS_CAPACITY];
+  private int[] fillMax = new int[INITIAL_FILLS_CAPACITY];
+  private long[] fillEndChanges = new long[INITIAL_FILLS_CAPACITY];
+  private long numChanges;
+  private int[] stack = new int[INITIAL_STACK_CAPACITY];
+  private int stackSize;
+
+  public FloodFill(int[] img, int w) {
+    this.img = img;
+    this.w = w;
+    this.filledBy = new int[img.length];
+  }
+
+  // Sets to `value` the pixels connected to (x, y) whose gray level differs from that of (x, y) by
+  // at most `threshold`. Returns the number of pixels filled
+  public int fill(int x, int y, int value, int threshold) {
+    var seed = y * w + x;
+    var min = img[seed] - threshold;
+    var max = img[seed] + threshold;
+    var prevFill = filledBy[seed];
+    if (
+      prevFill != 0
+      && fillMin[prevFill] == min
+      && fillMax[prevFill] == max
+      && fillEndChanges[prevFill] == numChanges
+    ) {
+      return 0;
+    }
+
+    var fill = ++numFills;
+    if (fill == fillMin.length) {
+      fillMin = Arrays.copyOf(fillMin, fill * 2);
+      fillMax = Arrays.copyOf(fillMax, fill * 2);
+      fillEndChanges = Arrays.copyOf(fillEndChanges, fill * 2);
+    }
+    var numFilled = 0;
+
+    stackSize = 0;
+    push(seed);
+    while (stackSize > 0) {
+      var i = stack[--stackSize];
+      if (filledBy[i] == fill) {
+        continue;
+      }
+      var rowStart = i - i % w;
+      var rowEnd = rowStart + w;
+
+      var left = i;
+      while (left > rowStart && matches(left - 1, min, max, fill)) {
+        left--;
+      }
+      var right = i + 1;
+      while (right < rowEnd && matches(right, min, max, fill)) {
+        right++;
+      }
+      for (var j = left; j < right; j++) {
+        if (img[j] != value) {
+          img[j] = value;
+          numChanges++;
+        }
+        filledBy[j] = fill;
+      }
+      numFilled += right - left;
+
+      if (rowStart > 0) {
+        pushRunStarts(left - w, right - w, min, max, fill);
+      }
+      if (rowEnd < img.length) {
+        pushRunStarts(left + w, right + w, min, max, fill);
+      }
+    }
+
+    fillMin[fill] = min;
+    fillMax[fill] = max;
+    fillEndChanges[fill] = numChanges;
+    return numFilled;
+  }
+
+  public boolean isFilled(int x, int y) {
+    return filledBy[y * w + x] != 0;
+  }
+
+  // Pushes the first pixel of each run of matching pixels within `from` (inclusive) to `to`
+  // (exclusive). The rest of the run is covered when the pixel is popped
+  private void pushRunStarts(int from, int to, int min, int max, int fill) {
+    var inRun = false;
+    for (var i = from; i < to; i++) {
+      if (matches(i, min, max, fill)) {
+        if (!inRun) {
+          push(i);
+          inRun = true;
+        }
+      } else {
+        inRun = false;
+      }
+    }
+  }
+
+  private boolean matches(int i, int min, int max, int fill) {
+    var level = img[i];
+    return level >= min && level <= max && filledBy[i] != fill;
+  }
+
+  private void push(int i) {
+    if (stackSize == stack.length) {
+      stack = Arrays.copyOf(stack, stackSize * 2);
+    }
+    stack[stackSize++] = i;
+  }
+}
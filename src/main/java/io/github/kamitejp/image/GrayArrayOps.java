@@ -0,0 +1,127 @@
+package io.github.kamitejp.image;
+
+import java.util.Arrays;
+
+// Operations on grayscale images represented as row-major arrays of gray levels (0–255), such as
+// those produced by `ImageOps.toGrayArray()`. Meant for deriving many images from a single source
+// without going through Java2D and allocating a `BufferedImage` at every step
+public final class GrayArrayOps {
+  private GrayArrayOps() {}
+
+  public static void negate(int[] arr) {
+    for (var i = 0; i < arr.length; i++) {
+      arr[i] = 255 - arr[i];
+    }
+  }
+
+  // Equivalent of `ImageOps.threshold()`
+  public static int[] thresholded(int[] src, int min, int max) {
+    var dst = new int[src.length];
+    for (var i = 0; i < src.length; i++) {
+      var level = src[i];
+      if (level > max) {
+        dst[i] = 255;
+      } else if (level > min) {
+        dst[i] = level;
+      }
+    }
+    return dst;
+  }
+
+  public static int[] withBorder(int[] src, int w, int h, int borderW, int level) {
+    var dstW = w + 2 * borderW;
+    var dst = new int[dstW * (h + 2 * borderW)];
+    Arrays.fill(dst, level);
+    for (var y = 0; y < h; y++) {
+      System.arraycopy(src, y * w, dst, (y + borderW) * dstW + borderW, w);
+    }
+    return dst;
+  }
+
+  // Bilinear resampling at pixel centers, matching Java2D's bilinear interpolation used by
+  // `ImageOps.scaled()`
+  public static int[] resampled(int[] src, int srcW, int srcH, int dstW, int dstH) {
+    var xs = SampleCoords.of(srcW, dstW);
+    var ys = SampleCoords.of(srcH, dstH);
+    var dst = new int[dstW * dstH];
+    var i = 0;
+    for (var y = 0; y < dstH; y++) {
+      for (var x = 0; x < dstW; x++) {
+        dst[i++] = Math.round(bilinearSample(src, srcW, xs, x, ys, y));
+      }
+    }
+    return dst;
+  }
+
+  // Equivalent of `ImageOps.blurred()`: downscales by `blurFactor` and upscales back
+  public static int[] blurred(int[] src, int w, int h, int blurFactor) {
+    var smallW = Math.max(1, w / blurFactor);
+    var smallH = Math.max(1, h / blurFactor);
+    var small = resampled(src, w, h, smallW, smallH);
+    return resampled(small, smallW, smallH, w, h);
+  }
+
+  // Equivalent of `ImageOps.sharpen()` (unsharp masking). The upscaled blurred image is computed on
+  // the fly instead of being materialized
+  public static int[] sharpened(
+    int[] src, int w, int h, float amount, int threshold, int blurFactor
+  ) {
+    var smallW = Math.max(1, w / blurFactor);
+    var smallH = Math.max(1, h / blurFactor);
+    var small = resampled(src, w, h, smallW, smallH);
+    var xs = SampleCoords.of(smallW, w);
+    var ys = SampleCoords.of(smallH, h);
+
+    var dst = new int[src.length];
+    var i = 0;
+    for (var y = 0; y < h; y++) {
+      for (var x = 0; x < w; x++) {
+        var level = src[i];
+        var blurredLevel = Math.round(bilinearSample(small, smallW, xs, x, ys, y));
+        var diff = level - blurredLevel;
+        if (Math.abs(diff) >= threshold) {
+          level = Math.max(Math.min((int) (amount * diff + level), 255), 0);
+        }
+        dst[i++] = level;
+      }
+    }
+    return dst;
+  }
+
+  private static float bilinearSample(
+    int[] src, int srcW, SampleCoords xs, int x, SampleCoords ys, int y
+  ) {
+    var row0 = ys.i0[y] * srcW;
+    var row1 = ys.i1[y] * srcW;
+    var x0 = xs.i0[x];
+    var x1 = xs.i1[x];
+    var fx = xs.frac[x];
+    var top = src[row0 + x0] + (src[row0 + x1] - src[row0 + x0]) * fx;
+    var bottom = src[row1 + x0] + (src[row1 + x1] - src[row1 + x0]) * fx;
+    return top + (bottom - top) * ys.frac[y];
+  }
+
+  // For each destination coordinate along one axis, the two neighbouring source coordinates and
+  // the weight of the second one. Computed once per axis instead of once per pixel
+  private record SampleCoords(int[] i0, int[] i1, float[] frac) {
+    static SampleCoords of(int srcLen, int dstLen) {
+      var i0 = new int[dstLen];
+      var i1 = new int[dstLen];
+      var frac = new float[dstLen];
+      var scale = (float) srcLen / dstLen;
+      for (var d = 0; d < dstLen; d++) {
+        var s = Math.max((d + 0.5f) * scale - 0.5f, 0);
+        var s0 = (int) s;
+        if (s0 >= srcLen - 1) {
+          i0[d] = srcLen - 1;
+          i1[d] = srcLen - 1;
+        } else {
+          i0[d] = s0;
+          i1[d] = s0 + 1;
+          frac[d] = s - s0;
+        }
+      }
+      return new SampleCoords(i0, i1, frac);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package io.github.kamitejp.image;
+
+import java.util.Arrays;
+
+// Morphological operators on grayscale images represented as row-major arrays of gray levels (see
+// `GrayArrayOps`). Pixels outside the image do not take part in the minimum or maximum.
+//
+// Each rectangle of the structuring element is processed as a horizontal and a vertical running
+// minimum, computed with the van Herk/Gil-Werman algorithm: the line is split into blocks of the
+// window's length, within which prefix and suffix minimums are taken, and every window spans at
+// most two blocks, so its minimum is that of a suffix and a prefix. This costs three comparisons
+// per pixel regardless of the window's length
+public final class GrayMorphology {
+  // Padding that never wins a minimum
+  private static final int MIN_IDENTITY = Integer.MAX_VALUE;
+
+  private GrayMorphology() {}
+
+  public static int[] eroded(int[] img, int w, int h, StructuringElement se) {
+    int[] res = null;
+    for (var rect : se.rects()) {
+      var rectRes = erodedByRect(img, w, h, rect);
+      if (res == null) {
+        res = rectRes;
+      } else {
+        for (var i = 0; i < res.length; i++) {
+          res[i] = Math.min(res[i], rectRes[i]);
+        }
+      }
+    }
+    return res;
+  }
+
+  // Erosion of the negated image, negated back, with the structuring element reflected as per the
+  // definition of dilation
+  public static int[] dilated(int[] img, int w, int h, StructuringElement se) {
+    var negated = negated(img);
+    var res = eroded(negated, w, h, se.reflected());
+    for (var i = 0; i < res.length; i++) {
+      res[i] = -res[i];
+    }
+    return res;
+  }
+
+  // Removes bright details smaller than the structuring element
+  public static int[] opened(int[] img, int w, int h, StructuringElement se) {
+    return dilated(eroded(img, w, h, se), w, h, se);
+  }
+
+  // Removes dark details smaller than the structuring element
+  public static int[] closed(int[] img, int w, int h, StructuringElement se) {
+    return eroded(dilated(img, w, h, se), w, h, se);
+  }
+
+  private static int[] erodedByRect(int[] img, int w, int h, StructuringElement.Rect rect) {
+    var horizontal = new int[img.length];
+    minRows(img, w, h, rect.w(), rect.anchorX(), horizontal);
+    var res = new int[img.length];
+    minColumns(horizontal, w, h, rect.h(), rect.anchorY(), res);
+    return res;
+  }
+
+  // Running minimum over each row, the window for column x spanning `x - anchor` to
+  // `x - anchor + k - 1`
+  private static void minRows(int[] src, int w, int h, int k, int anchor, int[] dst) {
+    if (k == 1) {
+      System.arraycopy(src, 0, dst, 0, src.length);
+      return;
+    }
+    // Padded row: element j corresponds to column j - anchor
+    var len = w + k - 1;
+    var padded = new int[len];
+    Arrays.fill(padded, MIN_IDENTITY);
+    var prefix = new int[len];
+    var suffix = new int[len];
+    for (var y = 0; y < h; y++) {
+      System.arraycopy(src, y * w, padded, anchor, w);
+      for (var blockStart = 0; blockStart < len; blockStart += k) {
+        var blockEnd = Math.min(blockStart + k, len);
+        prefix[blockStart] = padded[blockStart];
+        for (var j = blockStart + 1; j < blockEnd; j++) {
+          prefix[j] = Math.min(prefix[j - 1], padded[j]);
+        }
+        suffix[blockEnd - 1] = padded[blockEnd - 1];
+        for (var j = blockEnd - 2; j >= blockStart; j--) {
+          suffix[j] = Math.min(suffix[j + 1], padded[j]);
+        }
+      }
+      var rowStart = y * w;
+      for (var x = 0; x < w; x++) {
+        dst[rowStart + x] = Math.min(suffix[x], prefix[x + k - 1]);
+      }
+    }
+  }
+
+  // Same as `minRows()`, but over columns. Processed a whole row at a time, so that memory is
+  // accessed sequentially
+  private static void minColumns(int[] src, int w, int h, int k, int anchor, int[] dst) {
+    if (k == 1) {
+      System.arraycopy(src, 0, dst, 0, src.length);
+      return;
+    }
+    // Padded rows: row j corresponds to image row j - anchor. Rows outside the image do not change
+    // the running minimum, except at the start of a block, where they reset it
+    var len = h + k - 1;
+    var prefix = new int[len * w];
+    var suffix = new int[len * w];
+    for (var blockStart = 0; blockStart < len; blockStart += k) {
+      var blockEnd = Math.min(blockStart + k, len);
+      runningMinOfRows(src, w, h, anchor, prefix, blockStart, blockEnd, 1);
+      runningMinOfRows(src, w, h, anchor, suffix, blockEnd - 1, blockStart - 1, -1);
+    }
+    for (var y = 0; y < h; y++) {
+      var suffixRow = y * w;
+      var prefixRow = (y + k - 1) * w;
+      var dstRow = y * w;
+      for (var x = 0; x < w; x++) {
+        dst[dstRow + x] = Math.min(suffix[suffixRow + x], prefix[prefixRow + x]);
+      }
+    }
+  }
+
+  // Fills padded rows `from` (inclusive) to `to` (exclusive), going in direction `step`, with the
+  // running minimum of the image rows they correspond to
+  private static void runningMinOfRows(
+    int[] src, int w, int h, int anchor, int[] dst, int from, int to, int step
+  ) {
+    for (var j = from; j != to; j += step) {
+      var y = j - anchor;
+      var inside = y >= 0 && y < h;
+      var dstRow = j * w;
+      if (j == from) {
+        if (inside) {
+          System.arraycopy(src, y * w, dst, dstRow, w);
+        } else {
+          Arrays.fill(dst, dstRow, dstRow + w, MIN_IDENTITY);
+        }
+      } else if (inside) {
+        var srcRow = y * w;
+        var prevRow = (j - step) * w;
+        for (var x = 0; x < w; x++) {
+          dst[dstRow + x] = Math.min(dst[prevRow + x], src[srcRow + x]);
+        }
+      } else {
+        System.arraycopy(dst, (j - step) * w, dst, dstRow, w);
+      }
+    }
+  }
+
+  private static int[] negated(int[] img) {
+    var res = new int[img.length];
+    for (var i = 0; i < img.length; i++) {
+      res[i] = -img[i];
+    }
+    return res;
+  }
+}
@@ -0,0 +1,93 @@
+package io.github.kamitejp.image;
+
+// Gamma-correct grayscale conversion: components are linearized, weighted by their contribution to
+// luminance, and the luminance is gamma-encoded back into a gray level. Rather than calling
+// `Math.pow()` four times per pixel, the linearization and weighting of each component come from
+// tables, and the gray level is found among precomputed luminance thresholds. The tables are
+// derived from the exact formula, so the result is identical to evaluating it directly
+public final class GrayscaleConversion {
+  private static final double GAMMA = 2.2;
+  private static final double R_WEIGHT = 0.2126;
+  private static final double G_WEIGHT = 0.7152;
+  private static final double B_WEIGHT = 0.0722;
+
+  // Component value -> its weighted linear luminance contribution
+  private static final double[] R_LUMINANCE = new double[256];
+  private static final double[] G_LUMINANCE = new double[256];
+  private static final double[] B_LUMINANCE = new double[256];
+
+  // Gray level -> the smallest luminance that maps to at least that level
+  private static final double[] LEVEL_THRESHOLDS = new double[256];
+
+  // Luminance scaled to a fixed-point bucket index -> the gray level at the bucket's start. The
+  // level for a given luminance is then at most a few threshold comparisons further
+  private static final int NUM_BUCKETS_BITS = 12;
+  private static final int NUM_BUCKETS = 1 << NUM_BUCKETS_BITS;
+  private static final byte[] BUCKET_LEVELS = new byte[NUM_BUCKETS];
+
+  static {
+    for (var c = 0; c < 256; c++) {
+      var linear = Math.pow(c / 255.0, GAMMA);
+      R_LUMINANCE[c] = R_WEIGHT * linear;
+      G_LUMINANCE[c] = G_WEIGHT * linear;
+      B_LUMINANCE[c] = B_WEIGHT * linear;
+    }
+
+    for (var level = 1; level < 256; level++) {
+      LEVEL_THRESHOLDS[level] = smallestLuminanceOfLevel(level);
+    }
+
+    var level = 0;
+    for (var bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+      var bucketStart = (double) bucket / NUM_BUCKETS;
+      while (level < 255 && bucketStart >= LEVEL_THRESHOLDS[level + 1]) {
+        level++;
+      }
+      BUCKET_LEVELS[bucket] = (byte) level;
+    }
+  }
+
+  private GrayscaleConversion() {}
+
+  public static int grayLevel(int px) {
+    return grayLevel((px >> 16) & 0xFF, (px >> 8) & 0xFF, px & 0xFF);
+  }
+
+  public static int grayLevel(int r, int g, int b) {
+    // Same operations in the same order as in the direct formula, hence the same rounding
+    var luminance = R_LUMINANCE[r] + G_LUMINANCE[g] + B_LUMINANCE[b];
+    var bucket = Math.min((int) (luminance * NUM_BUCKETS), NUM_BUCKETS - 1);
+    var level = BUCKET_LEVELS[bucket] & 0xFF;
+    while (level < 255 && luminance >= LEVEL_THRESHOLDS[level + 1]) {
+      level++;
+    }
+    return level;
+  }
+
+  // Writes the gray levels of the RGB pixels of `src` into `dst`, which can be `src` itself
+  public static void toGrayLevels(int[] src, int[] dst) {
+    for (var i = 0; i < src.length; i++) {
+      dst[i] = grayLevel(src[i]);
+    }
+  }
+
+  private static int levelOfLuminance(double luminance) {
+    return (int) (255.0 * Math.pow(luminance, 1 / GAMMA));
+  }
+
+  // Binary search over the bit patterns of non-negative doubles, which are ordered the same as the
+  // values themselves
+  private static double smallestLuminanceOfLevel(int level) {
+    var lo = 0L;
+    var hi = Double.doubleToLongBits(1.0);
+    while (lo < hi) {
+      var mid = (lo + hi) >>> 1;
+      if (levelOfLuminance(Double.longBitsToDouble(mid)) >= level) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return Double.longBitsToDouble(lo);
+  }
+}
@@ -13,18 +13,14 @@ import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.zip.CRC32;
 
 import javax.imageio.ImageIO;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import io.github.kamitejp.geometry.Point;
 import io.github.kamitejp.geometry.Rectangle;
-import io.github.kamitejp.util.PentaFunction;
-import io.github.kamitejp.util.TriFunction;
 
 public final class ImageOps {
   private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
@@ -32,7 +28,6 @@ public final class ImageOps {
   public static final String DEFAULT_IMAGE_FORMAT = "png";
   public static final String DEFAULT_IMAGE_FORMAT_MIMETYPE = "image/png";
 
-  private static final double GAMMA = 2.2;
   private static final Color DEFAULT_FILL_COLOR = Color.WHITE;
   private static final int EDGE_SIZE = 3;
 
@@ -119,59 +114,9 @@ public final class ImageOps {
     return ret;
   }
 
-  public static BufferedImage eroded(BufferedImage img, int radiusX, int radiusY) {
-    int w = img.getWidth();
-    int h = img.getHeight();
-    int[] imgArr = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
-
-    var result = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-    int[] resultArr = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
-
-    var i = 0;
-    for (int y = 0; y < h; y++) {
-      for (int x = 0; x < w; x++) {
-        resultArr[i] = getMinPixelArr(imgArr, w, h, x, y, radiusX, radiusY);
-        i++;
-      }
-    }
-
-    return result;
-  }
-
-  private static int getMinPixelArr(int[] imgArr, int w, int h, int x, int y, int rx, int ry) {
-    int minR = 255;
-    int minG = 255;
-    int minB = 255;
-
-    var iStart = -ry / 2;
-    var iEnd = -iStart;
-    var jStart = -rx / 2;
-    var jEnd = -jStart;
-    if (iStart == 0) {
-      iEnd = 1;
-    }
-    if (jStart == 0) {
-      jEnd = 1;
-    }
-    for (int i = iStart; i < iEnd; i++) {
-      for (int j = jStart; j < jEnd; j++) {
-        var xx = x + j;
-        var yy = y + i;
-        if (xx >= 0 && xx < w && yy >= 0 && yy < h && i * i + j * j < rx * ry) {
-          var px = imgArr[((y + i) * w) + (x + j)]; // NOPMD - extra parentheses for readability
-          minR = Math.min(minR, r(px));
-          minG = Math.min(minG, g(px));
-          minB = Math.min(minB, b(px));
-        }
-      }
-    }
-
-    return rgbInt(minR, minG, minB);
-  }
-
   public static void threshold(BufferedImage img, int min, int max) {
     transformPixels(img, (r, g, b) -> {
-      var grayLevel = rgbGrayLevel(r, g, b);
+      var grayLevel = GrayscaleConversion.grayLevel(r, g, b);
       int px = 0x000000;
       if (grayLevel > max) {
         px = 0xFFFFFF;
@@ -212,34 +157,35 @@ public final class ImageOps {
   }
 
   public static void sharpen(BufferedImage img, float amount, int threshold, int blurFactor) {
+    // ASSUMPTION: `img`, and thus `blurred`, is of TYPE_INT_RGB
+    int[] imgArr = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
     var blurred = blurred(img, blurFactor);
-    transformPixels(img, (r, g, b, x, y) -> {
-      var blurredPx = blurred.getRGB(x, y);
-      var br = r(blurredPx);
-      var bg = g(blurredPx);
-      var bb = b(blurredPx);
-
-      if (Math.abs(r - br) >= threshold) {
-        r = (int) (amount * (r - br) + r);
-        r = Math.max(Math.min(r, 255), 0);
-      }
-      if (Math.abs(g - bg) >= threshold) {
-        g = (int) (amount * (g - bg) + g);
-        g = Math.max(Math.min(g, 255), 0);
-      }
-      if (Math.abs(b - bb) >= threshold) {
-        b = (int) (amount * (b - bb) + b);
-        b = Math.max(Math.min(b, 255), 0);
-      }
+    int[] blurredArr = ((DataBufferInt) blurred.getRaster().getDataBuffer()).getData();
+    for (var i = 0; i < imgArr.length; i++) {
+      var px = imgArr[i];
+      var blurredPx = blurredArr[i];
+      imgArr[i] = rgbInt(
+        sharpenedComponent(r(px), r(blurredPx), amount, threshold),
+        sharpenedComponent(g(px), g(blurredPx), amount, threshold),
+        sharpenedComponent(b(px), b(blurredPx), amount, threshold)
+      );
+    }
+  }
 
-      return rgbInt(r, g, b);
-    });
+  private static int sharpenedComponent(int c, int blurredC, float amount, int threshold) {
+    if (Math.abs(c - blurredC) < threshold) {
+      return c;
+    }
+    return Math.max(Math.min((int) (amount * (c - blurredC) + c), 255), 0);
   }
 
   public static void negate(BufferedImage img) {
-    transformPixels(img, (r, g, b) -> {
-      return rgbInt(255 - r, 255 - g, 255 - b);
-    });
+    // ASSUMPTION: `img` is of TYPE_INT_RGB
+    int[] imgArr = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    for (var i = 0; i < imgArr.length; i++) {
+      // Flipping the bits of a component is equivalent to subtracting it from 255
+      imgArr[i] = ~imgArr[i] & 0xFFFFFF;
+    }
   }
 
   public static int deviation(BufferedImage img, int w, Rectangle area) {
@@ -337,7 +283,7 @@ public final class ImageOps {
           skip = false;
         }
         int px = arrayPixelAt(imgArr, w, x, y);
-        var grayLevel = rgbGrayLevel(r(px), g(px), b(px));
+        var grayLevel = GrayscaleConversion.grayLevel(px);
         if (grayLevel > 30 && grayLevel < 230) {
           numNotBWPixels++;
         }
@@ -368,9 +314,69 @@ public final class ImageOps {
     return ((float) numColorfulPixels / imgArr.length) < 0.1;
   }
 
+  // CRC-32 of the image's gray levels averaged over `cellSize`-by-`cellSize` cells and reduced to
+  // 6 bits. Changes with any change to the content that is larger than a cell, e.g., a single
+  // character of the text, but not with slight noise in the gray levels
+  public static long grayChecksum(BufferedImage img, int cellSize) {
+    var w = img.getWidth();
+    var h = img.getHeight();
+    var gridW = (w + cellSize - 1) / cellSize;
+    var sums = new int[gridW];
+    var counts = new int[gridW];
+    var cellGrays = new byte[gridW];
+    var row = new int[w];
+    var crc = new CRC32();
+    for (var y = 0; y < h; y++) {
+      img.getRGB(0, y, w, 1, row, 0, w);
+      for (var x = 0; x < w; x++) {
+        var px = row[x];
+        sums[x / cellSize] += (77 * r(px) + 150 * g(px) + 29 * b(px)) >> 8;
+        counts[x / cellSize]++;
+      }
+      if ((y + 1) % cellSize == 0 || y == h - 1) {
+        for (var cx = 0; cx < gridW; cx++) {
+          cellGrays[cx] = (byte) ((sums[cx] / counts[cx]) >> 2);
+        }
+        crc.update(cellGrays);
+        Arrays.fill(sums, 0);
+        Arrays.fill(counts, 0);
+      }
+    }
+    return crc.getValue();
+  }
+
+  // Average brightness (0–255) of the cells of a `gridW` x `gridH` grid laid over the image.
+  // Only `rowsPerCell` evenly spaced pixel rows are read for each row of cells, so that the cost
+  // stays low even for large images
+  public static int[] sampledBrightnessGrid(
+    BufferedImage img, int gridW, int gridH, int rowsPerCell
+  ) {
+    var w = img.getWidth();
+    var h = img.getHeight();
+    var sums = new int[gridW * gridH];
+    var counts = new int[gridW * gridH];
+    var row = new int[w];
+    var numSampledRows = gridH * rowsPerCell;
+    for (var r = 0; r < numSampledRows; r++) {
+      var y = Math.min(h - 1, (2 * r + 1) * h / (2 * numSampledRows));
+      img.getRGB(0, y, w, 1, row, 0, w);
+      var cellRowStart = (r / rowsPerCell) * gridW;
+      for (var x = 0; x < w; x++) {
+        var px = row[x];
+        var cell = cellRowStart + x * gridW / w;
+        sums[cell] += (77 * r(px) + 150 * g(px) + 29 * b(px)) >> 8;
+        counts[cell]++;
+      }
+    }
+    for (var i = 0; i < sums.length; i++) {
+      sums[i] = counts[i] == 0 ? 0 : sums[i] / counts[i];
+    }
+    return sums;
+  }
+
   public static void toGrayscale(BufferedImage img) {
     transformPixels(img, (r, g, b) -> {
-      var grayLevel = rgbGrayLevel(r, g, b);
+      var grayLevel = GrayscaleConversion.grayLevel(r, g, b);
       return rgbInt(grayLevel, grayLevel, grayLevel);
     });
   }
@@ -385,6 +391,9 @@ public final class ImageOps {
     return null;
   }
 
+  // Fills with white the background regions connected to evenly spaced points along the edges of
+  // the image. The fills run one after another, each with its own tolerance around its seed, so a
+  // pixel can be visited by several of them (see `FloodFill`)
   public static BufferedImage withWhiteFloodFilledBackground(
     BufferedImage img,
     int numEdgeFloodPoints,
@@ -394,6 +403,7 @@ public final class ImageOps {
 
     var w = img.getWidth();
     var h = img.getHeight();
+    var floodFill = new FloodFill(imgArr, w);
 
     for (int i = 0; i <= numEdgeFloodPoints; i++) {
       var skip = i > 0 && i < numEdgeFloodPoints;
@@ -410,8 +420,10 @@ public final class ImageOps {
         if (y < 0) {
           y = 0;
         }
-        if (arrayPixelAt(imgArr, w, x, y) < 245) {
-          floodFill(imgArr, w, h, x, y, Color.WHITE, threshold);
+        // Seeds that are white to begin with are skipped, but not those whitened by an earlier
+        // fill, since flooding again from them can reach past that fill's tolerance
+        if (arrayPixelAt(imgArr, w, x, y) < 245 || floodFill.isFilled(x, y)) {
+          floodFill.fill(x, y, 255, threshold);
         }
       }
     }
@@ -419,63 +431,6 @@ public final class ImageOps {
     return grayArrayToBufferedImage(imgArr, w, h);
   }
 
-  public static void floodFill(
-    int[] img,
-    int w,
-    int h,
-    int x,
-    int y,
-    Color color,
-    int threshold
-  ) {
-    var srcColor = arrayPixelAt(img, w, x, y);
-    var hits = new boolean[h][w];
-
-    Queue<Point> queue = new LinkedList<>();
-    queue.add(new Point(x, y));
-
-    while (!queue.isEmpty()) {
-      var p = queue.remove();
-      if (doFloodFill(img, w, h, hits, p.x() , p.y(), srcColor, color.getRGB(), threshold)) {
-        queue.add(new Point(p.x(),     p.y() - 1));
-        queue.add(new Point(p.x(),     p.y() + 1));
-        queue.add(new Point(p.x() - 1, p.y()));
-        queue.add(new Point(p.x() + 1, p.y()));
-      }
-    }
-  }
-
-  private static boolean doFloodFill(
-    int[] img,
-    int w,
-    int h,
-    boolean[][] hits,
-    int x,
-    int y,
-    int srcColor,
-    int tgtColor,
-    int threshold
-  ) {
-    if (y < 0 || x < 0 || y >= h || x >= w) {
-      return false;
-    }
-    if (hits[y][x]) {
-      return false;
-    }
-
-    // ASSUMPTION: `img` is grayscale
-    var srcB = srcColor & 0xFF;
-    var curB = arrayPixelAt(img, w, x, y) & 0xFF;
-    if (Math.abs(srcB - curB) > threshold) {
-      return false;
-    }
-
-    arraySetPixelAt(img, w, x, y, tgtColor);
-    hits[y][x] = true;
-
-    return true;
-  }
-
   public static BufferedImage arrayToBufferedImage(byte[] arr, int w, int h) {
     int[] pixels = new int[arr.length / 3];
     for (var i = 0; i < pixels.length; i++) {
@@ -503,10 +458,7 @@ public final class ImageOps {
   }
 
   public static void arrayToGrayArray(int[] arr) {
-    for (var i = 0; i < arr.length; i++) {
-      var px = arr[i];
-      arr[i] = rgbGrayLevel(r(px), g(px), b(px));
-    }
+    GrayscaleConversion.toGrayLevels(arr, arr);
   }
 
   public static void grayArrayToArray(int[] arr) {
@@ -522,14 +474,6 @@ public final class ImageOps {
     }
   }
 
-  public static int[] maskImageToBinaryArray(BufferedImage img) {
-    var result = toArray(img);
-    for (int i = 0; i < result.length; i++) {
-      result[i] = (result[i] & 0xFF) == 0 ? 0 : 1;
-    }
-    return result;
-  }
-
   public static void otsuThreshold(int[] img) {
     otsuThreshold(img, 0);
   }
@@ -572,12 +516,16 @@ public final class ImageOps {
   }
 
   public static int[] toGrayArray(BufferedImage img) {
-    var result = toArray(img);
-    for (int i = 0; i < result.length; i++) {
-      var px = result[i];
-      result[i] = rgbGrayLevel(r(px), g(px), b(px));
-    }
-    return result;
+    return toGrayArray(img, new int[img.getWidth() * img.getHeight()]);
+  }
+
+  // Writes the gray levels of the image's pixels into `dst` and returns it, so that the buffer can
+  // be reused between images of the same size
+  public static int[] toGrayArray(BufferedImage img, int[] dst) {
+    // ASSUMPTION: img is of TYPE_INT_RGB
+    var imgArr = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    GrayscaleConversion.toGrayLevels(imgArr, dst);
+    return dst;
   }
 
   public static int arrayPixelAt(int[] arr, int w, int x, int y) {
@@ -588,47 +536,20 @@ public final class ImageOps {
     arr[y * w + x] = px;
   }
 
-  private static void transformPixels(
-    BufferedImage img,
-    TriFunction<Integer, Integer, Integer, Integer> fn
-  ) {
+  // Replaces every pixel with the result of the kernel applied to its components
+  public static void transformPixels(BufferedImage img, PixelKernel kernel) {
     // ASSUMPTION: `img` is of TYPE_INT_RGB
     int[] imgArr = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
-    for (var i = 0; i < imgArr.length; i++) {
-      var px = imgArr[i];
-      imgArr[i] = fn.apply(r(px), g(px), b(px));
-    }
+    transformPixels(imgArr, kernel);
   }
 
-  private static void transformPixels(
-    BufferedImage img,
-    PentaFunction<Integer, Integer, Integer, Integer, Integer, Integer> fn
-  ) {
-    // ASSUMPTION: `img` is of TYPE_INT_RGB
-    int[] imgArr = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
-    var w = img.getWidth();
-    var x = 0;
-    var y = 0;
-    for (var i = 0; i < imgArr.length; i++) {
-      var px = imgArr[i];
-      imgArr[i] = fn.apply(r(px), g(px), b(px), x, y);
-
-      x++;
-      if (x == w) {
-        x = 0;
-        y++;
-      }
+  public static void transformPixels(int[] arr, PixelKernel kernel) {
+    for (var i = 0; i < arr.length; i++) {
+      var px = arr[i];
+      arr[i] = kernel.apply(r(px), g(px), b(px));
     }
   }
 
-  private static int rgbGrayLevel(int r, int g, int b) {
-    var rr = Math.pow(r / 255.0, GAMMA);
-    var gg = Math.pow(g / 255.0, GAMMA);
-    var bb = Math.pow(b / 255.0, GAMMA);
-    var luminance = rgbLuminance(rr, gg, bb);
-    return (int) (255.0 * Math.pow(luminance, 1 / GAMMA));
-  }
-
   private static int r(int px) {
     return (px >> 16) & 0xFF;
   }
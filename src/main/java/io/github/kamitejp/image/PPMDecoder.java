@@ -0,0 +1,96 @@
+package io.github.kamitejp.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Decoder of binary PPM (P6) images, e.g., as output by screenshot tools. The format is just a
+// short text header followed by raw RGB samples, so the samples are read in bulk into a buffer
+// that is kept between calls and converted directly into the raster of a `TYPE_INT_RGB` image,
+// skipping the compression round trip and the intermediate images of PNG decoding with `ImageIO`
+public final class PPMDecoder {
+  private static final int MAX_DIMENSION = 1 << 14;
+  // Larger buffers, e.g., for full-screen captures, are not kept, so as not to hold on to memory
+  private static final int MAX_RETAINED_BUFFER_SIZE = 8 * 1024 * 1024;
+
+  private byte[] buf = new byte[0];
+
+  // Consumes the input up to the end of the image data
+  public synchronized BufferedImage decode(InputStream in) throws IOException {
+    if (in.read() != 'P' || in.read() != '6') {
+      throw new IOException("Not a binary PPM image");
+    }
+    var w = readHeaderNumber(in);
+    var h = readHeaderNumber(in);
+    var maxVal = readHeaderNumber(in);
+    // The header ends with a single whitespace character, consumed by `readHeaderNumber()`
+    if (w < 1 || h < 1 || w > MAX_DIMENSION || h > MAX_DIMENSION) {
+      throw new IOException("Unsupported PPM image dimensions: %dx%d".formatted(w, h));
+    }
+    if (maxVal < 1 || maxVal > 255) {
+      throw new IOException("Unsupported PPM maximum sample value: %d".formatted(maxVal));
+    }
+
+    var len = w * h * 3;
+    var buf = this.buf;
+    if (buf.length < len) {
+      buf = new byte[len];
+      if (len <= MAX_RETAINED_BUFFER_SIZE) {
+        this.buf = buf;
+      }
+    }
+    if (in.readNBytes(buf, 0, len) < len) {
+      throw new EOFException("PPM image data is truncated");
+    }
+
+    var img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    var dst = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    if (maxVal == 255) {
+      for (int i = 0, j = 0; i < dst.length; i++, j += 3) {
+        dst[i] = (buf[j] & 0xFF) << 16 | (buf[j + 1] & 0xFF) << 8 | (buf[j + 2] & 0xFF);
+      }
+    } else {
+      for (int i = 0, j = 0; i < dst.length; i++, j += 3) {
+        dst[i] = scaled(buf[j], maxVal) << 16
+          | scaled(buf[j + 1], maxVal) << 8
+          | scaled(buf[j + 2], maxVal);
+      }
+    }
+    return img;
+  }
+
+  // Reads a decimal number preceded by whitespace and comments, and consumes the single character
+  // that terminates it
+  private static int readHeaderNumber(InputStream in) throws IOException {
+    var c = in.read();
+    while (true) {
+      if (c == '#') {
+        while (c != '\n' && c != '\r' && c != -1) {
+          c = in.read();
+        }
+      } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+        c = in.read();
+      } else {
+        break;
+      }
+    }
+    if (c < '0' || c > '9') {
+      throw new IOException("Malformed PPM header");
+    }
+    var n = 0;
+    while (c >= '0' && c <= '9') {
+      if (n > MAX_DIMENSION) {
+        throw new IOException("Malformed PPM header");
+      }
+      n = n * 10 + (c - '0');
+      c = in.read();
+    }
+    return n;
+  }
+
+  private static int scaled(byte sample, int maxVal) {
+    return Math.min(255, ((sample & 0xFF) * 255 + maxVal / 2) / maxVal);
+  }
+}
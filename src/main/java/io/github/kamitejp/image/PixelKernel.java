@@ -0,0 +1,9 @@
+package io.github.kamitejp.image;
+
+// A function of the RGB components of a pixel that returns a new RGB pixel (see
+// `ImageOps.rgbInt()`). Works on primitives, so that applying it over an image does not box, and
+// the loop it is applied in can be inlined for each call site
+@FunctionalInterface
+public interface PixelKernel {
+  int apply(int r, int g, int b);
+}
@@ -0,0 +1,46 @@
+package io.github.kamitejp.image;
+
+import java.util.List;
+
+// The neighbourhood that a morphological operator (see `GrayMorphology`) takes the minimum or the
+// maximum over. Composed of rectangles, each of which can be processed in separable passes whose
+// cost does not depend on its size
+public record StructuringElement(List<Rect> rects) {
+  // Placed at pixel (x, y), the rectangle covers columns `x - anchorX` to `x - anchorX + w - 1`
+  // and the corresponding rows
+  public record Rect(int w, int h, int anchorX, int anchorY) {
+    public Rect {
+      if (w < 1 || h < 1 || anchorX < 0 || anchorX >= w || anchorY < 0 || anchorY >= h) {
+        throw new IllegalArgumentException("Invalid structuring element rectangle");
+      }
+    }
+
+    Rect reflected() {
+      return new Rect(w, h, w - 1 - anchorX, h - 1 - anchorY);
+    }
+  }
+
+  public static StructuringElement rectangle(int w, int h) {
+    return rectangle(w, h, w / 2, h / 2);
+  }
+
+  public static StructuringElement rectangle(int w, int h, int anchorX, int anchorY) {
+    return new StructuringElement(List.of(new Rect(w, h, anchorX, anchorY)));
+  }
+
+  // Approximation of a disk as the union of a wide, a tall and a square rectangle, i.e., a
+  // dodecagon (for radius 1, a cross)
+  public static StructuringElement disk(int radius) {
+    var side = (int) (radius / Math.sqrt(2));
+    var narrow = Math.round(radius * 0.41f);
+    return new StructuringElement(List.of(
+      new Rect(2 * radius + 1, 2 * narrow + 1, radius, narrow),
+      new Rect(2 * narrow + 1, 2 * radius + 1, narrow, radius),
+      new Rect(2 * side + 1, 2 * side + 1, side, side)
+    ));
+  }
+
+  StructuringElement reflected() {
+    return new StructuringElement(rects.stream().map(Rect::reflected).toList());
+  }
+}
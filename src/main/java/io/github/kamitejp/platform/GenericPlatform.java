@@ -20,6 +20,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import io.github.kamitejp.platform.dependencies.tesseract.Tesseract;
+import io.github.kamitejp.platform.dependencies.tesseract.TesseractEnginePool;
 import io.github.kamitejp.platform.dependencies.tesseract.TesseractModel;
 import io.github.kamitejp.platform.dependencies.tesseract.TesseractResult;
 import io.github.kamitejp.recognition.OCREngine;
@@ -44,6 +45,7 @@ public abstract class GenericPlatform {
   private Path programPath;
 
   private Tesseract tesseract;
+  private TesseractEnginePool tesseractEnginePool;
 
   protected GenericPlatform(String binName) {
     this.binName = binName;
@@ -130,13 +132,52 @@ public abstract class GenericPlatform {
       if (!tesseract.checkIsAvailable()) {
         throw new PlatformOCRInitializationException.MissingDependencies(tesseract.NAME);
       }
+      if (tesseractEngine.inProcess()) {
+        var poolRes = TesseractEnginePool.create(
+          tesseractEngine.libPath(), tesseractEngine.binPath()
+        );
+        if (poolRes.isOk()) {
+          tesseractEnginePool = poolRes.get();
+          LOG.info("Using in-process Tesseract (libtesseract)");
+        } else {
+          LOG.warn(
+            "In-process Tesseract is unavailable, falling back to the executable: {}",
+            poolRes.err()
+          );
+        }
+      }
     }
   }
 
   public TesseractResult tesseractOCR(BufferedImage img, TesseractModel model) {
+    if (tesseractEnginePool != null) {
+      return tesseractEnginePool.ocr(img, model);
+    }
     return tesseract.ocr(img, model);
   }
 
+  // Runs OCR on multiple images with the same model. The executable processes all of them within a
+  // single invocation, so that the model only has to be loaded once
+  public List<TesseractResult> tesseractOCRBatch(List<BufferedImage> imgs, TesseractModel model) {
+    if (tesseractEnginePool == null) {
+      return tesseract.ocrBatch(imgs, model);
+    }
+    return imgs.stream().map(img -> tesseractEnginePool.ocr(img, model)).toList();
+  }
+
+  // Whether Tesseract runs in-process. If so, the models stay loaded, making it preferable to run
+  // the images separately and in parallel rather than in batches
+  public boolean isTesseractInProcess() {
+    return tesseractEnginePool != null;
+  }
+
+  public void destroyOCR() {
+    if (tesseractEnginePool != null) {
+      tesseractEnginePool.destroy();
+      tesseractEnginePool = null;
+    }
+  }
+
   public Path getGenericLibDirPath() {
     return getProgramPath()
       .resolve(LIB_DIR_PATH_RELATIVE)
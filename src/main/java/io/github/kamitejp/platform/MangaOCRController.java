@@ -11,8 +11,10 @@ import java.nio.file.Files;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -32,6 +34,11 @@ public class MangaOCRController {
   private final String[] cmd;
   private Process process;
   private BufferedReader outputReader;
+  // Requests have to be handled one at a time, since replies are matched to them by order
+  private final ReentrantLock requestLock = new ReentrantLock();
+  // Reply to a request whose caller stopped waiting for it (e.g., because its recognition was
+  // superseded). Has to be consumed before the next request is sent
+  private Future<String> staleReply;
 
   public MangaOCRController(
     Platform platform, String customPythonPath, Consumer<MangaOCREvent> eventCb
@@ -114,10 +121,36 @@ public class MangaOCRController {
   };
 
   public Optional<String> recognize(BufferedImage img) {
+    try {
+      requestLock.lockInterruptibly();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    }
+    try {
+      return doRecognize(img);
+    } finally {
+      requestLock.unlock();
+    }
+  }
+
+  private Optional<String> doRecognize(BufferedImage img) {
     if (state != State.STARTED) {
       throw new IllegalStateException("Attempted to use \"Manga OCR\" while it was not ready");
     }
     try {
+      if (staleReply != null) {
+        // Cannot abort the inference in progress without restarting, which takes much longer than
+        // waiting for it to finish
+        LOG.debug("Discarding stale \"Manga OCR\" reply");
+        var line = staleReply.get(RECOGNITION_TIMEOUT_S, TimeUnit.SECONDS);
+        staleReply = null;
+        if (line == null || line.startsWith("Traceback (most")) {
+          handleCrash("\"Manga OCR\" failed while processing a cancelled request");
+          return Optional.empty();
+        }
+      }
+
       // Send image
       var imgBytes = ImageOps.encodeIntoByteArrayOutputStream(img).toByteArray();
       var encodedImgBytesSize = ByteBuffer.allocate(4).putInt(imgBytes.length).array();
@@ -129,7 +162,15 @@ public class MangaOCRController {
 
       // Read reply
       var futureLine = CompletableFuture.supplyAsync(outputLineSupplier);
-      var line = futureLine.get(RECOGNITION_TIMEOUT_S, TimeUnit.SECONDS);
+      String line;
+      try {
+        line = futureLine.get(RECOGNITION_TIMEOUT_S, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        LOG.debug("Stopped waiting for \"Manga OCR\" reply");
+        staleReply = futureLine;
+        Thread.currentThread().interrupt();
+        return Optional.empty();
+      }
       if (line == null) {
         return Optional.empty();
       }
@@ -145,7 +186,10 @@ public class MangaOCRController {
       }
 
       return Optional.of(line);
-    } catch (IOException | InterruptedException | ExecutionException e) {
+    } catch (InterruptedException e) {
+      LOG.debug("Interrupted while waiting for stale \"Manga OCR\" reply");
+      Thread.currentThread().interrupt();
+    } catch (IOException | ExecutionException e) {
       handleCrash("Error while communicating with \"Manga OCR\". See stderr for stack trace");
       e.printStackTrace();
     } catch (TimeoutException e) {
@@ -153,6 +197,7 @@ public class MangaOCRController {
       eventCb.accept(new MangaOCREvent.TimedOutAndRestarting());
       LOG.info("\"Manga OCR\" is taking too long to respond. Restarting");
       process.destroy();
+      staleReply = null;
       try {
         start();
       } catch (MangaOCRInitializationException e1) {
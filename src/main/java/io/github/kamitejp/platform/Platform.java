@@ -59,6 +59,12 @@ public interface Platform {
 
   TesseractResult tesseractOCR(BufferedImage img, TesseractModel model);
 
+  List<TesseractResult> tesseractOCRBatch(List<BufferedImage> imgs, TesseractModel model);
+
+  boolean isTesseractInProcess();
+
+  void destroyOCR();
+
   Path getGenericLibDirPath();
 
   Optional<Path> getDefaultPipxVenvPythonPath(String venvName);
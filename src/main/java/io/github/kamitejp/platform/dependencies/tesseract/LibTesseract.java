@@ -0,0 +1,59 @@
+package io.github.kamitejp.platform.dependencies.tesseract;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Library;
+import com.sun.jna.Pointer;
+
+// Minimal binding of the libtesseract C API (`tesseract/capi.h`) covering only what we use
+@SuppressWarnings({"PMD.MethodNamingConventions", "unused"})
+interface LibTesseract extends Library {
+  int OEM_LSTM_ONLY = 1;
+
+  // Polled during recognition. Returning `true` aborts it
+  interface CancelFunc extends Callback {
+    boolean invoke(Pointer cancelThis, int words);
+  }
+
+  Pointer TessVersion();
+
+  Pointer TessBaseAPICreate();
+
+  void TessBaseAPIDelete(Pointer handle);
+
+  void TessBaseAPIEnd(Pointer handle);
+
+  int TessBaseAPIInit2(Pointer handle, String datapath, String language, int oem);
+
+  boolean TessBaseAPISetVariable(Pointer handle, String name, String value);
+
+  void TessBaseAPISetPageSegMode(Pointer handle, int mode);
+
+  void TessBaseAPISetImage(
+    Pointer handle,
+    Pointer imagedata,
+    int width,
+    int height,
+    int bytesPerPixel,
+    int bytesPerLine
+  );
+
+  void TessBaseAPISetSourceResolution(Pointer handle, int ppi);
+
+  int TessBaseAPIRecognize(Pointer handle, Pointer monitor);
+
+  Pointer TessBaseAPIGetTsvText(Pointer handle, int pageNumber);
+
+  Pointer TessBaseAPIGetHOCRText(Pointer handle, int pageNumber);
+
+  void TessBaseAPIClear(Pointer handle);
+
+  void TessDeleteText(Pointer text);
+
+  Pointer TessMonitorCreate();
+
+  void TessMonitorDelete(Pointer monitor);
+
+  void TessMonitorSetDeadlineMSecs(Pointer monitor, int deadline);
+
+  void TessMonitorSetCancelFunc(Pointer monitor, CancelFunc cancelFunc);
+}
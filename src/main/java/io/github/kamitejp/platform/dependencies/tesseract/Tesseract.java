@@ -1,18 +1,41 @@
 package io.github.kamitejp.platform.dependencies.tesseract;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
+import javax.imageio.ImageIO;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import io.github.kamitejp.platform.BaseSimpleDependency;
 import io.github.kamitejp.platform.process.ProcessHelper;
+import io.github.kamitejp.platform.process.ProcessResult;
 import io.github.kamitejp.platform.process.ProcessRunParams;
 import io.github.kamitejp.image.ImageOps;
+import io.github.kamitejp.recognition.OCRGovernor;
 
 public final class Tesseract extends BaseSimpleDependency {
-  private static final String DPI = "70";
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final int DPI = 70;
   private static final String OEM = "1";
-  private static final Map<String, String> ENV = Map.of("OMP_THREAD_LIMIT", "1");
-  private static final int OCR_EXECUTION_TIMEOUT_MS = 5000;
+  // Upper bound for the OpenMP threads of a single Tesseract process, past which additional
+  // threads mostly add overhead
+  private static final int MAX_OMP_THREADS = 4;
+  static final int OCR_EXECUTION_TIMEOUT_MS = 5000;
+
+  // Preferred location for batch input files. Falls back to the default temporary directory
+  private static final Path TMPFS_PATH = Path.of("/dev/shm");
+  private static final String BATCH_DIR_PREFIX = "kamite-tesseract-";
 
   public Tesseract(String binPath) {
     super(binPath, "Tesseract");
@@ -29,22 +52,82 @@ public final class Tesseract extends BaseSimpleDependency {
   public TesseractResult ocr(BufferedImage img, TesseractModel model) {
     var imgOS = ImageOps.encodeIntoByteArrayOutputStream(img);
     var res = ProcessHelper.run(
-      ProcessRunParams.ofCmd(
-        BIN,
-        "stdin", "stdout",
-        "-l", model.lang,
-        "--dpi", DPI,
-        "--oem", OEM,
-        "--psm", model.psm,
-        "-c", "tessedit_create_hocr=1",
-        "-c", "hocr_font-info=0"
-      )
-        .withEnv(ENV)
+      ocrParams("stdin", model)
         .withInputBytes(imgOS.toByteArray())
         .withTimeout(OCR_EXECUTION_TIMEOUT_MS)
     );
+    return processResultToTesseractResult(res);
+  }
+
+  // Runs OCR on multiple images within a single Tesseract process, so that the model only has to
+  // be loaded once. The images are passed to Tesseract as a list of files in a temporary directory.
+  // Returns one result per input image, in the order of the input
+  public List<TesseractResult> ocrBatch(List<BufferedImage> imgs, TesseractModel model) {
+    if (imgs.size() == 1) {
+      return List.of(ocr(imgs.getFirst(), model));
+    }
+
+    Path dir = null;
+    try {
+      dir = createBatchDir();
+      var listLines = new ArrayList<String>(imgs.size());
+      for (var i = 0; i < imgs.size(); i++) {
+        var imgPath = dir.resolve("%d.png".formatted(i));
+        ImageIO.write(imgs.get(i), "png", imgPath.toFile());
+        listLines.add(imgPath.toString());
+      }
+      var listPath = dir.resolve("list.txt");
+      Files.write(listPath, listLines);
+
+      // Pages are processed sequentially, so the timeout has to grow with their number
+      var res = ProcessHelper.run(
+        ocrParams(listPath.toString(), model)
+          .withTimeout((long) OCR_EXECUTION_TIMEOUT_MS * imgs.size())
+      );
+      var tesseractRes = processResultToTesseractResult(res);
+      if (!(tesseractRes instanceof TesseractResult.TSV tsv)) {
+        return Collections.nCopies(imgs.size(), tesseractRes);
+      }
+
+      var pages = splitTSVPages(tsv.tsv(), imgs.size());
+      if (pages.isEmpty()) {
+        return Collections.nCopies(imgs.size(), new TesseractResult.Error(
+          "Tesseract returned TSV output not matching the %d input images".formatted(imgs.size())
+        ));
+      }
+      return pages.stream().<TesseractResult>map(TesseractResult.TSV::new).toList();
+    } catch (IOException e) {
+      LOG.error("Could not prepare the batch Tesseract input", e);
+      return Collections.nCopies(imgs.size(), new TesseractResult.ExecutionFailed());
+    } finally {
+      if (dir != null) {
+        deleteBatchDir(dir);
+      }
+    }
+  }
+
+  private ProcessRunParams ocrParams(String input, TesseractModel model) {
+    return ProcessRunParams.ofCmd(
+      BIN,
+      input, "stdout",
+      "-l", model.lang,
+      "--dpi", String.valueOf(DPI),
+      "--oem", OEM,
+      "--psm", model.psm,
+      "-c", "tessedit_create_tsv=1"
+    )
+      .withEnv(Map.of("OMP_THREAD_LIMIT", String.valueOf(ompThreadLimit())));
+  }
+
+  // Lets a process use its share of the cores, so that concurrent processes do not oversubscribe
+  // the CPU
+  private static int ompThreadLimit() {
+    return Math.min(OCRGovernor.get().getThreadsPerJob(), MAX_OMP_THREADS);
+  }
+
+  private static TesseractResult processResultToTesseractResult(ProcessResult<String> res) {
     if (res.didCompleteWithoutError()) {
-      return new TesseractResult.HOCR(res.getStdout());
+      return new TesseractResult.TSV(res.getStdout());
     } else if (res.didCompleteWithError()) {
       return new TesseractResult.Error(res.getStderr());
     } else if (res.didTimeOut()) {
@@ -53,4 +136,60 @@ public final class Tesseract extends BaseSimpleDependency {
       return new TesseractResult.ExecutionFailed();
     }
   }
+
+  // Splits multi-page TSV output into the rows of each page, based on the `page_num` column.
+  // Returns an empty list if the page numbers do not match the expected number of pages
+  static List<String> splitTSVPages(String tsv, int numPages) {
+    var pages = new ArrayList<StringBuilder>(numPages);
+    for (var i = 0; i < numPages; i++) {
+      pages.add(new StringBuilder());
+    }
+    var rowStart = 0;
+    while (rowStart < tsv.length()) {
+      var rowEnd = tsv.indexOf('\n', rowStart);
+      if (rowEnd == -1) {
+        rowEnd = tsv.length();
+      }
+      // `page_num` is the second column
+      var colStart = tsv.indexOf('\t', rowStart) + 1;
+      var colEnd = colStart > 0 ? tsv.indexOf('\t', colStart) : -1;
+      if (colEnd != -1 && colEnd < rowEnd) {
+        int pageNum;
+        try {
+          pageNum = Integer.parseInt(tsv, colStart, colEnd, 10);
+        } catch (NumberFormatException _) {
+          pageNum = -1; // Header row
+        }
+        if (pageNum > numPages) {
+          return List.of();
+        }
+        if (pageNum >= 1) {
+          pages.get(pageNum - 1).append(tsv, rowStart, Math.min(rowEnd + 1, tsv.length()));
+        }
+      }
+      rowStart = rowEnd + 1;
+    }
+    // Every page has at least a page-level row
+    if (pages.stream().anyMatch(StringBuilder::isEmpty)) {
+      return List.of();
+    }
+    return pages.stream().map(StringBuilder::toString).toList();
+  }
+
+  private static Path createBatchDir() throws IOException {
+    if (Files.isDirectory(TMPFS_PATH) && Files.isWritable(TMPFS_PATH)) {
+      return Files.createTempDirectory(TMPFS_PATH, BATCH_DIR_PREFIX);
+    }
+    return Files.createTempDirectory(BATCH_DIR_PREFIX);
+  }
+
+  private static void deleteBatchDir(Path dir) {
+    try (var paths = Files.walk(dir)) {
+      for (var p : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(p);
+      }
+    } catch (IOException e) {
+      LOG.debug("Could not delete the batch Tesseract directory: {}", dir, e);
+    }
+  }
 }
@@ -0,0 +1,297 @@
+package io.github.kamitejp.platform.dependencies.tesseract;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.jna.Library;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+import io.github.kamitejp.util.Result;
+
+// Runs Tesseract in-process through libtesseract, keeping a pool of initialized `TessBaseAPI`
+// handles per model so that the traineddata only has to be loaded once per handle instead of once
+// per OCR call
+public final class TesseractEnginePool {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final List<String> LIBRARY_NAMES = List.of("tesseract", "libtesseract-5");
+  private static final int BYTES_PER_PIXEL = 3;
+  private static final int MAX_HANDLES_PER_MODEL =
+    Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+  private final LibTesseract lib;
+  private final Map<TesseractModel, ModelPool> pools;
+  // Set once the library turns out not to provide TSV output, after which hOCR is used instead
+  private volatile boolean tsvUnavailable;
+
+  private TesseractEnginePool(LibTesseract lib) {
+    this.lib = lib;
+    this.pools = new EnumMap<>(TesseractModel.class);
+    for (var model : TesseractModel.values()) {
+      pools.put(model, new ModelPool(model));
+    }
+  }
+
+  public static Result<TesseractEnginePool, String> create(String customLibPath, String binPath) {
+    limitOpenMPThreads();
+
+    LibTesseract lib = null;
+    var errors = new ArrayList<String>(LIBRARY_NAMES.size());
+    for (var name : libraryNameCandidates(customLibPath, binPath)) {
+      try {
+        lib = Native.load(name, LibTesseract.class);
+        break;
+      } catch (UnsatisfiedLinkError e) {
+        errors.add("%s (%s)".formatted(name, e.getMessage()));
+      }
+    }
+    if (lib == null) {
+      return Result.Err("Could not load libtesseract: %s".formatted(String.join("; ", errors)));
+    }
+
+    var pool = new TesseractEnginePool(lib);
+    // Warm up one handle per model. This also verifies that the models are actually loadable
+    for (var modelPool : pool.pools.values()) {
+      var warmupRes = modelPool.warmUp();
+      if (warmupRes.isErr()) {
+        pool.destroy();
+        return Result.Err(warmupRes.err());
+      }
+    }
+    LOG.debug("Initialized libtesseract {}", () -> pool.lib.TessVersion().getString(0));
+
+    return Result.Ok(pool);
+  }
+
+  public TesseractResult ocr(BufferedImage img, TesseractModel model) {
+    var modelPool = pools.get(model);
+    Pointer handle;
+    try {
+      handle = modelPool.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new TesseractResult.ExecutionFailed();
+    }
+
+    // Make it possible to abort the recognition by interrupting the calling thread, e.g., by
+    // cancelling its task
+    var caller = Thread.currentThread();
+    LibTesseract.CancelFunc cancelFunc = (_, _) -> caller.isInterrupted();
+    var monitor = lib.TessMonitorCreate();
+    lib.TessMonitorSetCancelFunc(monitor, cancelFunc);
+    try (var pixels = toPixelMemory(img)) {
+      var w = img.getWidth();
+      lib.TessBaseAPISetImage(
+        handle, pixels, w, img.getHeight(), BYTES_PER_PIXEL, w * BYTES_PER_PIXEL
+      );
+      lib.TessBaseAPISetSourceResolution(handle, Tesseract.DPI);
+      lib.TessMonitorSetDeadlineMSecs(monitor, Tesseract.OCR_EXECUTION_TIMEOUT_MS);
+
+      var startTime = System.currentTimeMillis();
+      if (lib.TessBaseAPIRecognize(handle, monitor) != 0) {
+        if (caller.isInterrupted()) {
+          return new TesseractResult.ExecutionFailed();
+        }
+        var elapsed = System.currentTimeMillis() - startTime;
+        return elapsed >= Tesseract.OCR_EXECUTION_TIMEOUT_MS
+          ? new TesseractResult.TimedOut()
+          : new TesseractResult.Error("libtesseract recognition has failed");
+      }
+
+      return getOutput(handle);
+    } finally {
+      lib.TessMonitorDelete(monitor);
+      Reference.reachabilityFence(cancelFunc);
+      lib.TessBaseAPIClear(handle);
+      modelPool.release(handle);
+    }
+  }
+
+  public void destroy() {
+    pools.values().forEach(ModelPool::destroy);
+  }
+
+  private TesseractResult getOutput(Pointer handle) {
+    if (!tsvUnavailable) {
+      try {
+        var tsv = getText(lib.TessBaseAPIGetTsvText(handle, 0));
+        return tsv == null
+          ? new TesseractResult.Error("libtesseract returned no TSV output")
+          : new TesseractResult.TSV(tsv);
+      } catch (UnsatisfiedLinkError e) {
+        LOG.debug("libtesseract does not provide TSV output, falling back to hOCR", e);
+        tsvUnavailable = true;
+      }
+    }
+    var hocr = getText(lib.TessBaseAPIGetHOCRText(handle, 0));
+    return hocr == null
+      ? new TesseractResult.Error("libtesseract returned no hOCR output")
+      : new TesseractResult.HOCR(hocr);
+  }
+
+  // Copies and frees a string returned by libtesseract
+  private String getText(Pointer textPtr) {
+    if (textPtr == null) {
+      return null;
+    }
+    try {
+      return textPtr.getString(0, StandardCharsets.UTF_8.name());
+    } finally {
+      lib.TessDeleteText(textPtr);
+    }
+  }
+
+  private static Memory toPixelMemory(BufferedImage img) {
+    var w = img.getWidth();
+    var h = img.getHeight();
+    // Not read from the data buffer directly, since the image can be a view into a larger one
+    var pixels = img.getRGB(0, 0, w, h, null, 0, w);
+
+    var mem = new Memory((long) w * h * BYTES_PER_PIXEL);
+    var buf = mem.getByteBuffer(0, mem.size());
+    for (var i = 0; i < w * h; i++) {
+      var px = pixels[i];
+      buf.put((byte) (px >> 16));
+      buf.put((byte) (px >> 8));
+      buf.put((byte) px);
+    }
+    return mem;
+  }
+
+  private static List<String> libraryNameCandidates(String customLibPath, String binPath) {
+    if (customLibPath != null) {
+      return List.of(customLibPath);
+    }
+    // On Windows, the library is placed alongside the executable rather than on the search path
+    var binDir = Path.of(binPath).getParent();
+    if (binDir != null) {
+      for (var name : LIBRARY_NAMES) {
+        NativeLibrary.addSearchPath(name, binDir.toString());
+      }
+    }
+    return LIBRARY_NAMES;
+  }
+
+  // Equivalent of passing `OMP_THREAD_LIMIT=1` to the Tesseract process. Must happen before
+  // libtesseract (and with it OpenMP) is loaded
+  private static void limitOpenMPThreads() {
+    try {
+      if (Platform.isWindows()) {
+        Native.load("msvcrt", MSVCRT.class)._putenv_s("OMP_THREAD_LIMIT", "1");
+      } else {
+        Native.load("c", LibC.class).setenv("OMP_THREAD_LIMIT", "1", 0);
+      }
+    } catch (UnsatisfiedLinkError e) {
+      LOG.debug("Could not set OMP_THREAD_LIMIT for libtesseract", e);
+    }
+  }
+
+  @SuppressWarnings("PMD.MethodNamingConventions")
+  private interface LibC extends Library {
+    int setenv(String name, String value, int overwrite);
+  }
+
+  @SuppressWarnings("PMD.MethodNamingConventions")
+  private interface MSVCRT extends Library {
+    int _putenv_s(String name, String value);
+  }
+
+  private final class ModelPool {
+    private final TesseractModel model;
+    private final LinkedBlockingDeque<Pointer> idle = new LinkedBlockingDeque<>();
+    private final List<Pointer> all = new ArrayList<>(MAX_HANDLES_PER_MODEL);
+    // Handles created or being created. Guarded by `all`
+    private int numReserved;
+
+    ModelPool(TesseractModel model) {
+      this.model = model;
+    }
+
+    Result<Void, String> warmUp() {
+      var handle = tryReserve() ? createReserved() : null;
+      if (handle == null) {
+        return Result.Err(
+          "libtesseract could not initialize model '%s'".formatted(model.lang)
+        );
+      }
+      idle.add(handle);
+      return Result.Ok(null);
+    }
+
+    Pointer acquire() throws InterruptedException {
+      var handle = idle.pollFirst();
+      if (handle != null) {
+        return handle;
+      }
+      // The handle is initialized outside the lock, since loading the model takes a while and
+      // other callers should meanwhile be able to take handles that are returned
+      if (tryReserve()) {
+        handle = createReserved();
+        if (handle != null) {
+          return handle;
+        }
+      }
+      return idle.takeFirst();
+    }
+
+    void release(Pointer handle) {
+      idle.addFirst(handle);
+    }
+
+    void destroy() {
+      synchronized (all) {
+        for (var handle : all) {
+          lib.TessBaseAPIEnd(handle);
+          lib.TessBaseAPIDelete(handle);
+        }
+        all.clear();
+        idle.clear();
+        numReserved = 0;
+      }
+    }
+
+    private boolean tryReserve() {
+      synchronized (all) {
+        if (numReserved >= MAX_HANDLES_PER_MODEL) {
+          return false;
+        }
+        numReserved++;
+        return true;
+      }
+    }
+
+    // Gives the slot back if the handle could not be created
+    private Pointer createReserved() {
+      var handle = lib.TessBaseAPICreate();
+      if (lib.TessBaseAPIInit2(handle, null, model.lang, LibTesseract.OEM_LSTM_ONLY) != 0) {
+        lib.TessBaseAPIDelete(handle);
+        synchronized (all) {
+          numReserved--;
+        }
+        return null;
+      }
+      lib.TessBaseAPISetPageSegMode(handle, Integer.parseInt(model.psm));
+      lib.TessBaseAPISetVariable(handle, "hocr_font_info", "0");
+      synchronized (all) {
+        all.add(handle);
+      }
+      LOG.debug("Created libtesseract handle for model '{}'", model.lang);
+      return handle;
+    }
+  }
+}
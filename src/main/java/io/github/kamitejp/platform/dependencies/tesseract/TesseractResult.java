@@ -4,9 +4,15 @@ public sealed interface TesseractResult
   permits TesseractResult.ExecutionFailed,
           TesseractResult.TimedOut,
           TesseractResult.Error,
-          TesseractResult.HOCR {
+          TesseractResult.Output {
   record ExecutionFailed() implements TesseractResult {}
   record TimedOut() implements TesseractResult {}
   record Error(String error) implements TesseractResult {}
-  record HOCR(String hocr) implements TesseractResult {}
+
+  sealed interface Output extends TesseractResult
+    permits TesseractResult.TSV,
+            TesseractResult.HOCR {}
+  record TSV(String tsv) implements Output {}
+  // Only produced when the TSV output is not available
+  record HOCR(String hocr) implements Output {}
 }
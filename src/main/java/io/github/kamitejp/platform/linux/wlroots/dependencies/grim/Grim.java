@@ -2,6 +2,7 @@ package io.github.kamitejp.platform.linux.wlroots.dependencies.grim;
 
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,10 +11,20 @@ import io.github.kamitejp.platform.BaseSimpleDependency;
 import io.github.kamitejp.platform.process.ProcessHelper;
 import io.github.kamitejp.platform.process.ProcessRunParams;
 import io.github.kamitejp.image.ImageOps;
+import io.github.kamitejp.image.PPMDecoder;
 
 public final class Grim extends BaseSimpleDependency {
   private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
 
+  private static final int SCREENSHOT_TIMEOUT_MS = 3000;
+
+  // Uncompressed PPM output avoids grim compressing the image and Kamite decompressing it on every
+  // capture. PNG is only a fallback in case PPM output fails
+  private enum OutputFormat { PPM, PNG }
+
+  private final PPMDecoder ppmDecoder = new PPMDecoder();
+  private volatile OutputFormat outputFormat = OutputFormat.PPM;
+
   public Grim() {
     super("grim");
   }
@@ -28,8 +39,12 @@ public final class Grim extends BaseSimpleDependency {
       return false;
     }
     if (!(takeFullScreenshot() instanceof GrimResult.Screenshot)) {
-      LOG.debug("grim failed to take a test screenshot");
-      return false;
+      outputFormat = OutputFormat.PNG;
+      if (!(takeFullScreenshot() instanceof GrimResult.Screenshot)) {
+        LOG.debug("grim failed to take a test screenshot");
+        return false;
+      }
+      LOG.debug("grim failed to take a test screenshot in the PPM format, falling back to PNG");
     }
     return true;
   }
@@ -49,9 +64,32 @@ public final class Grim extends BaseSimpleDependency {
       cmd.add("-g");
       cmd.add(selection);
     }
-    cmd.add("-");
+    return switch (outputFormat) {
+      case PPM -> takeScreenshotPPM(cmd);
+      case PNG -> takeScreenshotPNG(cmd);
+    };
+  }
+
+  private GrimResult takeScreenshotPPM(List<String> cmd) {
+    cmd.addAll(List.of("-t", "ppm", "-"));
+    var res = ProcessHelper.runWithStdoutReader(
+      ProcessRunParams.ofCmd(cmd).withTimeout(SCREENSHOT_TIMEOUT_MS), ppmDecoder::decode
+    );
+    if (!res.didComplete()) {
+      return new GrimResult.ExecutionFailed();
+    } else if (res.didCompleteWithError()) {
+      return new GrimResult.Error(res.getStderr());
+    } else if (res.getStdout() == null) {
+      return new GrimResult.Error("Could not decode grim's PPM output");
+    }
+    return new GrimResult.Screenshot(res.getStdout());
+  }
 
-    var res = ProcessHelper.runWithBinaryOutput(ProcessRunParams.ofCmd(cmd).withTimeout(3000));
+  private GrimResult takeScreenshotPNG(List<String> cmd) {
+    cmd.add("-");
+    var res = ProcessHelper.runWithBinaryOutput(
+      ProcessRunParams.ofCmd(cmd).withTimeout(SCREENSHOT_TIMEOUT_MS)
+    );
     if (!res.didComplete()) {
       return new GrimResult.ExecutionFailed();
     } else if (res.didCompleteWithError()) {
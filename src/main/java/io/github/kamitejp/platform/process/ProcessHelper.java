@@ -1,9 +1,11 @@
 package io.github.kamitejp.platform.process;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.FutureTask;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -24,14 +26,27 @@ public final class ProcessHelper {
   public static ProcessResult<String> run(ProcessRunParams params) {
     LOG.debug("Running: `{}`", () -> params.getCmdString());
     var pb = initProcessBuilder(params);
+    TimeoutProcess process = null;
     try {
-      var process = pb.start();
+      process = pb.start();
       if (params.getInputBytes() != null) {
         process.getOutputStream().write(params.getInputBytes());
       }
       process.getOutputStream().close();
-      var out = readStdoutAndStderr(process);
+      // Read the output on a separate thread so that waiting for it can be interrupted, e.g., when
+      // the caller's task gets cancelled
+      final var p = process;
+      var outTask = new FutureTask<>(() -> readStdoutAndStderr(p));
+      Thread.ofVirtual().start(outTask);
+      var out = outTask.get();
       return ProcessResult.completed(process.waitFor(), out.stdout(), out.stderr());
+    } catch (InterruptedException e) {
+      LOG.debug("Process '{}' was interrupted, destroying", params.getCmd()[0]);
+      if (process != null) {
+        process.cancel();
+      }
+      Thread.currentThread().interrupt();
+      return ProcessResult.failedToExecute();
     } catch (ProcessTimeoutException e) {
       LOG.debug("Process '{}' has timed out", params.getCmd()[0]);
       return ProcessResult.timedOut();
@@ -63,6 +78,37 @@ public final class ProcessHelper {
     }
   }
 
+  @FunctionalInterface
+  public interface StdoutReader<T> {
+    T read(InputStream stdout) throws IOException;
+  }
+
+  // Hands stdout to `stdoutReader` to consume as it is produced, instead of buffering it whole
+  // first. The result's stdout is null if `stdoutReader` has failed
+  public static <T> ProcessResult<T> runWithStdoutReader(
+    ProcessRunParams params, StdoutReader<T> stdoutReader
+  ) {
+    LOG.debug("Running with stdout reader: `{}`", () -> params.getCmdString());
+    var pb = initProcessBuilder(params);
+    try {
+      var process = pb.start();
+      process.getOutputStream().close();
+      T stdout = null;
+      if (!process.timeoutElapsed()) {
+        try (var in = process.getInputStream()) {
+          stdout = stdoutReader.read(in);
+        } catch (IOException e) {
+          LOG.debug("Exception while reading stdout of process '{}': {}", params.getCmd()[0], e);
+        }
+      }
+      var stderr = readStderr(process);
+      return ProcessResult.completed(process.waitFor(), stdout, stderr);
+    } catch (Exception e) {
+      LOG.debug("Exception while running process '{}': {}", params.getCmd()[0], e);
+      return ProcessResult.failedToExecute();
+    }
+  }
+
   public static String readStdout(TimeoutProcess process) {
     if (process.timeoutElapsed()) {
       return "";
@@ -19,6 +19,14 @@ public class TimeoutProcess {
     process.destroy();
   }
 
+  // Destroys the process before it has been waited for, stopping the timeout timer along the way
+  public void cancel() {
+    if (timer != null) {
+      timer.cancel();
+    }
+    process.destroy();
+  }
+
   public int exitValue() {
     return process.exitValue();
   }
@@ -58,12 +58,18 @@ public abstract class BaseHFOCRAdapter implements RemoteOCRAdapter {
       .build();
 
     HttpResponse<String> res;
+    var resFuture = HTTP.client().sendAsync(req, HttpResponse.BodyHandlers.ofString());
     try {
-      var resFuture = HTTP.client().sendAsync(req, HttpResponse.BodyHandlers.ofString());
       res = resFuture.get(REQUEST_TIMEOUT_S, TimeUnit.SECONDS);
     } catch (TimeoutException e) {
+      resFuture.cancel(/* mayInterruptIfRunning */ true);
       return Result.Err(new RemoteOCRRequestError.Timeout());
-    } catch (ExecutionException | InterruptedException e) {
+    } catch (InterruptedException e) {
+      // Abort the exchange instead of leaving it running in the background
+      resFuture.cancel(/* mayInterruptIfRunning */ true);
+      Thread.currentThread().interrupt();
+      return Result.Err(new RemoteOCRRequestError.Cancelled());
+    } catch (ExecutionException e) {
       return Result.Err(new RemoteOCRRequestError.SendFailed(e.getMessage()));
     }
 
@@ -0,0 +1,380 @@
+package io.github.kamitejp.recognition;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.github.kamitejp.chunk.ProcessedChunk;
+import io.github.kamitejp.chunk.UnprocessedChunkVariants;
+import io.github.kamitejp.diagnostics.RecognitionTrace;
+import io.github.kamitejp.platform.GenericPlatform;
+import io.github.kamitejp.util.JSON;
+import io.github.kamitejp.util.Result;
+
+// Recognizes text in a set of image files in one go, several images at a time. Results are
+// appended to a JSONL file, one line per image, as soon as they are ready. A run that has been
+// interrupted can be resumed by running again with the same output file: images that already have
+// a result there are skipped
+public final class BatchRecognizer {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final List<String> IMAGE_EXTENSIONS = List.of("png", "jpg", "jpeg", "bmp", "gif");
+  private static final long PROGRESS_REPORT_INTERVAL_MS = 5000;
+
+  private final Recognizer recognizer;
+  private final AutoBlockHeuristic autoBlockHeuristic;
+  private final TextOrientation textOrientation;
+  private final Function<UnprocessedChunkVariants, List<ProcessedChunk>> processChunkVariantsFn;
+  private final int parallelism;
+
+  // A line of the output file. `text` is the content of the top-scored variant
+  public record Record(
+    String image,
+    String text,
+    List<Variant> variants,
+    String error,
+    long blockDetectionMS,
+    long recognitionMS,
+    long totalMS
+  ) {}
+
+  public record Variant(String content, List<String> labels, int score) {}
+
+  public record Summary(
+    int numImages, int numSkipped, int numRecognized, int numFailed, double imagesPerSecond
+  ) {}
+
+  // `autoBlockHeuristic` can be null, in which case whole images are recognized
+  public BatchRecognizer(
+    Recognizer recognizer,
+    AutoBlockHeuristic autoBlockHeuristic,
+    Function<UnprocessedChunkVariants, List<ProcessedChunk>> processChunkVariantsFn,
+    int parallelism
+  ) {
+    this.recognizer = recognizer;
+    this.autoBlockHeuristic = autoBlockHeuristic;
+    this.textOrientation = autoBlockHeuristic == null
+      ? TextOrientation.UNKNOWN
+      : switch (autoBlockHeuristic) {
+          case MANGA_FULL, MANGA_SINGLE_COLUMN -> TextOrientation.VERTICAL;
+          case GAME_TEXTBOX                    -> TextOrientation.HORIZONTAL;
+        };
+    this.processChunkVariantsFn = processChunkVariantsFn;
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  // `input` is either a directory, whose image files are to be recognized, or a glob pattern
+  // matching the image files, e.g., `/path/to/volume-*/*.png`
+  public Result<Summary, String> run(String input, Path outputPath) {
+    var imagePathsRes = resolveInput(input);
+    if (imagePathsRes.isErr()) {
+      return Result.Err(imagePathsRes.err());
+    }
+    var imagePaths = imagePathsRes.get();
+
+    var doneRes = readDoneImages(outputPath);
+    if (doneRes.isErr()) {
+      return Result.Err(doneRes.err());
+    }
+    var done = doneRes.get();
+    var pending = imagePaths.stream().filter(p -> !done.contains(imageKey(p))).toList();
+    var numSkipped = imagePaths.size() - pending.size();
+    if (numSkipped > 0) {
+      LOG.info("Skipping {} image(s) already present in the output file", numSkipped);
+    }
+    LOG.info(
+      "Recognizing {} image(s) with up to {} at a time. Writing results to {}",
+      pending.size(), parallelism, outputPath
+    );
+
+    try (
+      var writer = Files.newBufferedWriter(
+        outputPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+      )
+    ) {
+      var progress = new Progress(pending.size());
+      var nextIdx = new AtomicInteger();
+      var workers = new ArrayList<Thread>(parallelism);
+      for (var i = 0; i < Math.min(parallelism, pending.size()); i++) {
+        workers.add(Thread.ofVirtual().start(() -> {
+          int idx;
+          while ((idx = nextIdx.getAndIncrement()) < pending.size()) {
+            if (Thread.currentThread().isInterrupted()) {
+              return;
+            }
+            progress.update(writer, recognizeImageCatching(pending.get(idx)));
+          }
+        }));
+      }
+      try {
+        for (var worker : workers) {
+          worker.join();
+        }
+      } catch (InterruptedException e) {
+        workers.forEach(Thread::interrupt);
+        Thread.currentThread().interrupt();
+        return Result.Err("Batch recognition was interrupted");
+      }
+
+      var elapsedS = progress.elapsedMS() / 1000.0;
+      return Result.Ok(new Summary(
+        imagePaths.size(),
+        numSkipped,
+        progress.numRecognized,
+        progress.numFailed,
+        elapsedS > 0 ? progress.numProcessed() / elapsedS : 0
+      ));
+    } catch (IOException e) {
+      return Result.Err("Could not write to the output file: %s".formatted(e));
+    }
+  }
+
+  // An unexpected exception fails only the image that caused it, not the whole worker
+  private Record recognizeImageCatching(Path path) {
+    var startNS = System.nanoTime();
+    try {
+      return recognizeImage(path);
+    } catch (RuntimeException e) {
+      LOG.error("Unexpected error while recognizing {}", path, e);
+      return failureRecord(imageKey(path), "UNEXPECTED_ERROR", 0, 0, startNS);
+    }
+  }
+
+  // Returns null if the recognition failed in a way that might not happen on a retry, so that the
+  // image gets picked up again when the run is resumed
+  private Record recognizeImage(Path path) {
+    RecognitionTrace.beginRequest();
+    var event = RecognitionTrace.stage("request");
+    try {
+      var startNS = System.nanoTime();
+      var image = imageKey(path);
+
+      var maybeImg = GenericPlatform.openImage(path);
+      if (maybeImg.isEmpty()) {
+        return failureRecord(image, "IMAGE_UNREADABLE", 0, 0, startNS);
+      }
+      BufferedImage img = maybeImg.get();
+
+      var blockDetectionMS = 0L;
+      if (autoBlockHeuristic != null) {
+        var blockDetectionStartNS = System.nanoTime();
+        var maybeBlockImg = recognizer.autoNarrowToTextBlock(img, autoBlockHeuristic);
+        blockDetectionMS = msSince(blockDetectionStartNS);
+        if (maybeBlockImg.isEmpty()) {
+          return failureRecord(image, "NO_TEXT_BLOCK", blockDetectionMS, 0, startNS);
+        }
+        img = maybeBlockImg.get();
+      }
+
+      var recognitionStartNS = System.nanoTime();
+      var recognitionRes = recognizer.recognizeBox(img, textOrientation);
+      var recognitionMS = msSince(recognitionStartNS);
+      if (recognitionRes.isErr()) {
+        var err = recognitionRes.err();
+        if (err == RecognitionOpError.OCR_ERROR || err == RecognitionOpError.CANCELLED) {
+          LOG.error("Could not recognize {} ({}). It will be retried on resume", image, err);
+          return null;
+        }
+        return failureRecord(image, err.toString(), blockDetectionMS, recognitionMS, startNS);
+      }
+
+      var variants = processChunkVariantsFn.apply(recognitionRes.get().chunkVariants()).stream()
+        .map(c -> new Variant(c.content(), c.labels(), c.score()))
+        .toList();
+      return new Record(
+        image,
+        variants.isEmpty() ? null : variants.getFirst().content(),
+        variants,
+        null,
+        blockDetectionMS,
+        recognitionMS,
+        msSince(startNS)
+      );
+    } finally {
+      event.finish();
+      RecognitionTrace.endRequest();
+    }
+  }
+
+  private static Record failureRecord(
+    String image, String error, long blockDetectionMS, long recognitionMS, long startNS
+  ) {
+    return new Record(
+      image, null, List.of(), error, blockDetectionMS, recognitionMS, msSince(startNS)
+    );
+  }
+
+  private static long msSince(long startNS) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNS);
+  }
+
+  private static String imageKey(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+
+  private static Result<List<Path>, String> resolveInput(String input) {
+    Path dirPath;
+    String glob = null;
+    try {
+      var inputPath = Paths.get(input);
+      if (Files.isDirectory(inputPath)) {
+        dirPath = inputPath;
+      } else {
+        // Walk from the deepest directory that precedes the first glob metacharacter
+        var globStart = indexOfGlobMetachar(input);
+        if (globStart == -1) {
+          return Result.Err("'%s' is neither a directory nor a glob pattern".formatted(input));
+        }
+        var sepIdx = input.lastIndexOf(inputPath.getFileSystem().getSeparator(), globStart);
+        dirPath = sepIdx == -1 ? Paths.get("") : Paths.get(input.substring(0, sepIdx + 1));
+        glob = input;
+      }
+    } catch (InvalidPathException e) {
+      return Result.Err("Invalid input path: %s".formatted(e));
+    }
+
+    var matcher = glob == null
+      ? null
+      : FileSystems.getDefault().getPathMatcher("glob:%s".formatted(glob));
+    var maxDepth = glob == null ? 1 : Integer.MAX_VALUE;
+    try (Stream<Path> paths = Files.walk(dirPath, maxDepth)) {
+      var imagePaths = paths
+        .filter(Files::isRegularFile)
+        .filter(p -> matcher == null ? hasImageExtension(p) : matcher.matches(p))
+        .sorted()
+        .toList();
+      if (imagePaths.isEmpty()) {
+        return Result.Err("No images found at '%s'".formatted(input));
+      }
+      return Result.Ok(imagePaths);
+    } catch (IOException e) {
+      return Result.Err("Could not list input images: %s".formatted(e));
+    }
+  }
+
+  private static int indexOfGlobMetachar(String s) {
+    for (var i = 0; i < s.length(); i++) {
+      if ("*?[{".indexOf(s.charAt(i)) != -1) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean hasImageExtension(Path path) {
+    var filename = path.getFileName().toString();
+    var dotIdx = filename.lastIndexOf('.');
+    return dotIdx != -1
+      && IMAGE_EXTENSIONS.contains(filename.substring(dotIdx + 1).toLowerCase(Locale.ENGLISH));
+  }
+
+  // Reads the images already recognized in a previous run. Also makes sure that a line left
+  // incomplete by an interruption does not get merged with the first line of this run
+  private static Result<Set<String>, String> readDoneImages(Path outputPath) {
+    var done = new HashSet<String>();
+    if (!Files.exists(outputPath)) {
+      return Result.Ok(done);
+    }
+    try {
+      try (var lines = Files.lines(outputPath, StandardCharsets.UTF_8)) {
+        lines.forEach(line -> {
+          try {
+            var image = JSON.mapper().readTree(line).path("image").asText(null);
+            if (image != null) {
+              done.add(image);
+            }
+          } catch (JsonProcessingException e) {
+            LOG.debug("Ignoring malformed output file line: {}", line);
+          }
+        });
+      }
+      try (var file = new RandomAccessFile(outputPath.toFile(), "rw")) {
+        if (file.length() > 0) {
+          file.seek(file.length() - 1);
+          if (file.read() != '\n') {
+            file.write('\n');
+          }
+        }
+      }
+    } catch (IOException e) {
+      return Result.Err("Could not read the existing output file: %s".formatted(e));
+    }
+    return Result.Ok(done);
+  }
+
+  // Writes the records and keeps track of the throughput. Lines are flushed one by one so that no
+  // finished work is lost on interruption
+  private static final class Progress {
+    private final int numPending;
+    private final long startMS = System.currentTimeMillis();
+    private long lastReportMS = startMS;
+    private int numRecognized;
+    private int numFailed;
+    private int numRetriable;
+
+    Progress(int numPending) {
+      this.numPending = numPending;
+    }
+
+    synchronized void update(BufferedWriter writer, Record record) {
+      if (record == null) {
+        numRetriable++;
+      } else {
+        if (record.error() == null) {
+          numRecognized++;
+        } else {
+          numFailed++;
+        }
+        try {
+          writer.write(JSON.mapper().writeValueAsString(record));
+          writer.write('\n');
+          writer.flush();
+        } catch (IOException e) {
+          LOG.error("Could not write the result for {}: {}", record.image(), e);
+        }
+      }
+
+      var nowMS = System.currentTimeMillis();
+      if (nowMS - lastReportMS >= PROGRESS_REPORT_INTERVAL_MS || numProcessed() == numPending) {
+        lastReportMS = nowMS;
+        LOG.info(
+          "Processed {}/{} images ({} images/s)",
+          numProcessed(),
+          numPending,
+          "%.2f".formatted(numProcessed() / (Math.max(1, nowMS - startMS) / 1000.0))
+        );
+      }
+    }
+
+    synchronized int numProcessed() {
+      return numRecognized + numFailed + numRetriable;
+    }
+
+    long elapsedMS() {
+      return System.currentTimeMillis() - startMS;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package io.github.kamitejp.recognition;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.IntUnaryOperator;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.kamitejp.geometry.Point;
+import io.github.kamitejp.geometry.Rectangle;
+import io.github.kamitejp.image.GrayscaleConversion;
+import io.github.kamitejp.image.ImageOps;
+import io.github.kamitejp.image.OtsuThreshold;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler.SizeFilter;
+
+// Coarse-to-fine mode for the auto block detectors. Their pixel constants are tuned for characters
+// of a certain size, and their cost grows with the number of pixels, so when the text is large
+// (e.g., on HiDPI screens or in high-resolution scans) detection is run on a downscaled image
+// instead, with the scale chosen from the character size estimated around the anchor point. The
+// detected block is then mapped back to full resolution, and each of its edges is snapped to the
+// text found in a narrow full-resolution band along it
+final class BlockPyramid {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  // The character size, as estimated below, that the detectors' constants work best with
+  private static final int TARGET_CHAR_SIZE = 16;
+  // Only text at least twice the target size is detected coarse-to-fine. Text up to that size is
+  // still within what the detectors handle well at full resolution, e.g., manga on a 1080p screen
+  private static final float MAX_SCALE = 0.5f;
+  private static final float MIN_SCALE = 0.2f;
+
+  private static final int ESTIMATION_WINDOW_SIZE = 256;
+  private static final int ESTIMATION_MIN_COMPONENTS = 3;
+
+  private BlockPyramid() {}
+
+  private record Estimate(float scale, int charSize, boolean darkBackground, int threshold) {}
+
+  // Runs `detector` on `img` either directly or in coarse-to-fine mode. `anchor` is where the text
+  // to be detected is expected to be, and is passed to `detector` in the coordinates of the image
+  // it is given. `marginOfCharSize` gives the margin the detector leaves around the text for a
+  // given character size
+  static Optional<Rectangle> detect(
+    BufferedImage img,
+    Point anchor,
+    IntUnaryOperator marginOfCharSize,
+    BiFunction<BufferedImage, Point, Optional<Rectangle>> detector
+  ) {
+    var maybeEstimate = estimate(img, anchor);
+    if (maybeEstimate.isEmpty()) {
+      return detector.apply(img, anchor);
+    }
+    var estimate = maybeEstimate.get();
+    LOG.debug(
+      "Detecting block in coarse-to-fine mode (char size = {}, scale = {})",
+      estimate.charSize(),
+      estimate.scale()
+    );
+
+    var coarseW = (int) (img.getWidth() * estimate.scale());
+    var coarseH = (int) (img.getHeight() * estimate.scale());
+    if (coarseW < 2 || coarseH < 2) {
+      return detector.apply(img, anchor);
+    }
+    var coarseImg = ImageOps.scaled(img, coarseW, coarseH);
+    var coarseAnchor = new Point(
+      Math.min(coarseImg.getWidth() - 1, (int) (anchor.x() * estimate.scale())),
+      Math.min(coarseImg.getHeight() - 1, (int) (anchor.y() * estimate.scale()))
+    );
+    return detector.apply(coarseImg, coarseAnchor).map(coarseBox -> refined(
+      img,
+      upscaled(coarseBox, img, coarseImg),
+      estimate,
+      marginOfCharSize.applyAsInt(estimate.charSize())
+    ));
+  }
+
+  // Empty if the text around `anchor` is not large enough to warrant downscaling
+  private static Optional<Estimate> estimate(BufferedImage img, Point anchor) {
+    var window = clampedToImage(Rectangle.around(anchor, ESTIMATION_WINDOW_SIZE), img);
+    if (window == null) {
+      return Optional.empty();
+    }
+    var darkBackground = ImageOps.isDarkDominated(img, window);
+    var gray = grayRegion(img, window, darkBackground);
+    var threshold = OtsuThreshold.of(gray);
+    binarize(gray, threshold);
+
+    var components = ConnectedComponentLabeler.label(
+      gray,
+      window.getWidth(),
+      window.getHeight(),
+      new SizeFilter(2, ESTIMATION_WINDOW_SIZE / 2, Integer.MAX_VALUE)
+    );
+    if (components.count() < ESTIMATION_MIN_COMPONENTS) {
+      return Optional.empty();
+    }
+    var sizes = new int[components.count()];
+    for (var i = 0; i < sizes.length; i++) {
+      sizes[i] = (components.width(i) + components.height(i)) / 2;
+    }
+    // Characters often break up into several components, so the median would be an underestimate,
+    // while the largest components may be several characters merged together
+    Arrays.sort(sizes);
+    var charSize = sizes[sizes.length * 3 / 4];
+
+    var scale = (float) TARGET_CHAR_SIZE / charSize;
+    if (scale > MAX_SCALE) {
+      return Optional.empty();
+    }
+    return Optional.of(
+      new Estimate(Math.max(scale, MIN_SCALE), charSize, darkBackground, threshold)
+    );
+  }
+
+  private static Rectangle upscaled(Rectangle box, BufferedImage img, BufferedImage coarseImg) {
+    var sx = (float) img.getWidth() / coarseImg.getWidth();
+    var sy = (float) img.getHeight() / coarseImg.getHeight();
+    return Rectangle.ofEdges(
+      (int) (box.getLeft() * sx),
+      (int) (box.getTop() * sy),
+      Math.min(img.getWidth() - 1, (int) Math.ceil((box.getRight() + 1) * sx) - 1),
+      Math.min(img.getHeight() - 1, (int) Math.ceil((box.getBottom() + 1) * sy) - 1)
+    );
+  }
+
+  // Moves each edge of `box` onto the extent of the text components that lie within a band along
+  // the edge and have their centers inside `box`, then adds back the margin
+  private static Rectangle refined(
+    BufferedImage img, Rectangle box, Estimate estimate, int margin
+  ) {
+    var band = estimate.charSize();
+    var filter = new SizeFilter(
+      Math.max(2, estimate.charSize() / 10), estimate.charSize() * 4, Integer.MAX_VALUE
+    );
+    var left = Integer.MAX_VALUE;
+    var top = Integer.MAX_VALUE;
+    var right = Integer.MIN_VALUE;
+    var bottom = Integer.MIN_VALUE;
+
+    var bands = new Rectangle[] {
+      Rectangle.ofEdges(
+        Math.max(0, box.getLeft() - band), box.getTop(), box.getLeft() + band, box.getBottom()
+      ),
+      Rectangle.ofEdges(
+        box.getLeft(), Math.max(0, box.getTop() - band), box.getRight(), box.getTop() + band
+      ),
+      Rectangle.ofEdges(
+        Math.max(0, box.getRight() - band), box.getTop(), box.getRight() + band, box.getBottom()
+      ),
+      Rectangle.ofEdges(
+        box.getLeft(), Math.max(0, box.getBottom() - band), box.getRight(), box.getBottom() + band
+      ),
+    };
+    for (var edge = 0; edge < bands.length; edge++) {
+      var region = clampedToImage(bands[edge], img);
+      if (region == null) {
+        continue;
+      }
+      var gray = grayRegion(img, region, estimate.darkBackground());
+      binarize(gray, estimate.threshold());
+      var components = ConnectedComponentLabeler.label(
+        gray, region.getWidth(), region.getHeight(), filter
+      );
+      for (var i = 0; i < components.count(); i++) {
+        var ccLeft = region.getLeft() + components.left(i);
+        var ccTop = region.getTop() + components.top(i);
+        var ccRight = region.getLeft() + components.right(i);
+        var ccBottom = region.getTop() + components.bottom(i);
+        if (!box.contains(new Point((ccLeft + ccRight) / 2, (ccTop + ccBottom) / 2))) {
+          continue;
+        }
+        switch (edge) {
+          case 0 -> left = Math.min(left, ccLeft);
+          case 1 -> top = Math.min(top, ccTop);
+          case 2 -> right = Math.max(right, ccRight);
+          default -> bottom = Math.max(bottom, ccBottom);
+        }
+      }
+    }
+
+    // Edges with no text found along them stay where the coarse detection put them
+    left = left == Integer.MAX_VALUE ? box.getLeft() : Math.max(0, left - margin);
+    top = top == Integer.MAX_VALUE ? box.getTop() : Math.max(0, top - margin);
+    right = right == Integer.MIN_VALUE
+      ? box.getRight()
+      : Math.min(img.getWidth() - 1, right + margin);
+    bottom = bottom == Integer.MIN_VALUE
+      ? box.getBottom()
+      : Math.min(img.getHeight() - 1, bottom + margin);
+    if (left > right || top > bottom) {
+      return box;
+    }
+    return Rectangle.ofEdges(left, top, right, bottom);
+  }
+
+  // Gray levels of the pixels within `area`, inverted if the background is dark, so that the text
+  // is always darker than the background
+  private static int[] grayRegion(BufferedImage img, Rectangle area, boolean invert) {
+    var w = area.getWidth();
+    var res = img.getRGB(area.getLeft(), area.getTop(), w, area.getHeight(), null, 0, w);
+    GrayscaleConversion.toGrayLevels(res, res);
+    if (invert) {
+      for (var i = 0; i < res.length; i++) {
+        res[i] = 255 - res[i];
+      }
+    }
+    return res;
+  }
+
+  private static void binarize(int[] gray, int threshold) {
+    for (var i = 0; i < gray.length; i++) {
+      gray[i] = gray[i] < threshold ? 0 : 255;
+    }
+  }
+
+  // Null if there is no overlap
+  private static Rectangle clampedToImage(Rectangle r, BufferedImage img) {
+    var left = Math.max(0, r.getLeft());
+    var top = Math.max(0, r.getTop());
+    var right = Math.min(img.getWidth() - 1, r.getRight());
+    var bottom = Math.min(img.getHeight() - 1, r.getBottom());
+    return left > right || top > bottom ? null : Rectangle.ofEdges(left, top, right, bottom);
+  }
+}
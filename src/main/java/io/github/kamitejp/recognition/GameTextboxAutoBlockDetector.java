@@ -5,7 +5,6 @@ import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 
@@ -14,15 +13,25 @@ import org.apache.logging.log4j.LogManager;
 
 import io.github.kamitejp.geometry.Point;
 import io.github.kamitejp.geometry.Rectangle;
+import io.github.kamitejp.geometry.RectangleIndex;
+import io.github.kamitejp.image.GrayMorphology;
 import io.github.kamitejp.image.ImageOps;
-import io.github.kamitejp.recognition.imagefeature.ConnectedComponentExtractor;
+import io.github.kamitejp.image.StructuringElement;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler.SizeFilter;
 import io.github.kamitejp.recognition.imagefeature.Contour;
 import io.github.kamitejp.recognition.imagefeature.ContourFinder;
+import io.github.kamitejp.recognition.imagefeature.RectangleMask;
 
 public class GameTextboxAutoBlockDetector implements AutoBlockDetector {
   @SuppressWarnings("unused")
   private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
 
+  private static final StructuringElement EROSION_ELEMENT = StructuringElement.rectangle(2, 2);
+  private static final SizeFilter CC_SIZE_FILTER = new SizeFilter(2, 150, 4000);
+  private static final int NEAR_CC_MAX_DISTANCE = 50;
+  private static final int BLOCK_MARGIN = 2;
+
   // NOTE: This is a temporary stand-in algorithm copy-pasted with few modifications from
   //       an older version of the manga block detector. It doesn't need to be
   //       refactored/deduplicated, since it is to be reworked
@@ -33,11 +42,24 @@ public class GameTextboxAutoBlockDetector implements AutoBlockDetector {
     if (img.getType() != BufferedImage.TYPE_INT_RGB) {
       img = ImageOps.withoutAlphaChannel(img);
     }
-
     var startX = img.getWidth() <= 50 ? img.getWidth() - 1 : 50;
     var startY = img.getHeight() <= 10 ? img.getHeight() - 1 : 10;
-    var start = new Point(startX, startY);
+    return BlockPyramid.detect(
+      img,
+      new Point(startX, startY),
+      charSize -> BLOCK_MARGIN,
+      (levelImg, levelStart) -> detectAtLevel(levelImg, levelStart, debug, sendDebugImage)
+    );
+  }
 
+  // `img` is either the original image or its downscaled version (see `BlockPyramid`), and `start`
+  // is the start point in its coordinates
+  private Optional<Rectangle> detectAtLevel(
+    BufferedImage img,
+    Point start,
+    boolean debug,
+    BiConsumer<BufferedImage, String> sendDebugImage
+  ) {
     var gray = ImageOps.copied(img);
     ImageOps.toGrayscale(gray);
 
@@ -46,29 +68,22 @@ public class GameTextboxAutoBlockDetector implements AutoBlockDetector {
       ImageOps.negate(gray);
     }
 
-    var eroded = ImageOps.eroded(gray, 2, 2);
-    var imgArr = ImageOps.toGrayArray(eroded);
+    var imgArr = GrayMorphology.eroded(
+      ImageOps.toGrayArray(gray), img.getWidth(), img.getHeight(), EROSION_ELEMENT
+    );
     ImageOps.otsuThreshold(imgArr);
 
-    var ccExtractor = new ConnectedComponentExtractor();
-    var ccs = Arrays.stream(ccExtractor.extract(imgArr, img.getWidth(), img.getHeight()))
-      .skip(1)
-      .map(cc -> cc.rectangle())
-      .filter(cc -> cc.dimensionsWithin(2, 150) && cc.getArea() < 4000)
-      .toList();
+    var ccs = ConnectedComponentLabeler
+      .label(imgArr, img.getWidth(), img.getHeight(), CC_SIZE_FILTER)
+      .rectangles();
 
     Graphics debugGfx = null;
     if (debug) {
       debugGfx = img.createGraphics();
     }
 
-    var nearCcs = new ArrayList<Rectangle>();
-    for (var cc : ccs) {
-      var dist = cc.getCenter().distanceFrom(start);
-      if (dist < 50) {
-        nearCcs.add(cc);
-      }
-    }
+    var nearCcs = new RectangleIndex(ccs, NEAR_CC_MAX_DISTANCE)
+      .withinDistance(start, NEAR_CC_MAX_DISTANCE);
 
     if (nearCcs.isEmpty()) {
       return Optional.empty();
@@ -152,21 +167,12 @@ public class GameTextboxAutoBlockDetector implements AutoBlockDetector {
       }
     }
 
-    var mask = new BufferedImage(img.getWidth(), img.getHeight(), img.getType());
-    var maskGfx = mask.createGraphics();
-    maskGfx.setColor(Color.BLACK);
-    maskGfx.fillRect(0, 0, img.getWidth(), img.getHeight());
-    maskGfx.setColor(Color.WHITE);
-    for (var b : processedCcs) {
-      maskGfx.fillRect(b.getLeft(), b.getTop(), b.getWidth(), b.getHeight());
-    }
-    maskGfx.dispose();
+    var mask = RectangleMask.rasterize(processedCcs, img.getWidth(), img.getHeight());
     // if (debug) {
-    //   sendDebugImageFn.accept(mask);
+    //   sendDebugImageFn.accept(RectangleMask.toImage(mask, img.getWidth(), img.getHeight()));
     // }
 
-    var maskArr = ImageOps.maskImageToBinaryArray(mask);
-    var contours = ContourFinder.find(maskArr, mask.getWidth(), mask.getHeight());
+    var contours = ContourFinder.find(mask, img.getWidth(), img.getHeight());
     if (debug) {
       debugGfx.setColor(Color.BLUE);
     }
@@ -197,7 +203,7 @@ public class GameTextboxAutoBlockDetector implements AutoBlockDetector {
     Rectangle result = null;
     if (largestContourBBoxContainingCenter != null) {
       result = largestContourBBoxContainingCenter
-        .expandedNonNegative(2)
+        .expandedNonNegative(BLOCK_MARGIN)
         .clamped(img.getWidth() - 1, img.getHeight() - 1);
 
       if (debug) {
@@ -13,18 +13,33 @@ import java.util.function.BiConsumer;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import io.github.kamitejp.diagnostics.RecognitionTrace;
 import io.github.kamitejp.geometry.Point;
 import io.github.kamitejp.geometry.Rectangle;
+import io.github.kamitejp.geometry.RectangleIndex;
+import io.github.kamitejp.image.GrayMorphology;
 import io.github.kamitejp.image.ImageOps;
-import io.github.kamitejp.recognition.imagefeature.ConnectedComponent;
-import io.github.kamitejp.recognition.imagefeature.ConnectedComponentExtractor;
+import io.github.kamitejp.image.StructuringElement;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler.SizeFilter;
 import io.github.kamitejp.recognition.imagefeature.Contour;
 import io.github.kamitejp.recognition.imagefeature.ContourFinder;
+import io.github.kamitejp.recognition.imagefeature.RectangleMask;
 
 public class MangaAutoBlockDetector implements AutoBlockDetector {
   private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
 
   private static final int NEAR_CC_MAX_DISTANCE = 75;
+  private static final StructuringElement EROSION_ELEMENT = StructuringElement.rectangle(2, 2);
+  private static final SizeFilter CC_SIZE_FILTER = new SizeFilter(2, 150, 4000);
+
+  // Whole-page detection parameters (see `detectAll()`). Components with fewer near components
+  // than the minimum (counting themselves) are taken to be outside of text blocks. Each component
+  // is grown on both sides by this fraction of how much it would be grown towards the click point,
+  // so that gaps of the same size are bridged
+  private static final int PAGE_MIN_NEAR_CCS = 3;
+  private static final int PAGE_MIN_BLOCK_CCS = 3;
+  private static final double PAGE_GROWTH_FACTOR = 0.5;
 
   private static boolean DEBUG_OTSU            = false;
   private static boolean DEBUG_INITIAL_CCS     = false;
@@ -37,6 +52,7 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
   private static boolean DEBUG_REDUCED_BOX     = true;
   private static boolean DEBUG_CONTOUR         = false;
   private static boolean DEBUG_TOP_EDGE_CUTOFF = false;
+  private static boolean DEBUG_PAGE_BLOCKS     = true;
 
   @Override
   public Optional<Rectangle> detect(
@@ -45,8 +61,23 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     if (img.getType() != BufferedImage.TYPE_INT_RGB) {
       img = ImageOps.withoutAlphaChannel(img);
     }
+    return BlockPyramid.detect(
+      img,
+      new Point(img.getWidth() / 2, img.getHeight() / 2),
+      charSize -> charSize / 3, // Corresponds to the margin added to the final box below
+      (levelImg, levelCenter) -> detectAtLevel(levelImg, levelCenter, debug, sendDebugImage)
+    );
+  }
 
-    var center = new Point(img.getWidth() / 2, img.getHeight() / 2);
+  // `img` is either the original image or its downscaled version (see `BlockPyramid`), and `center`
+  // is the click point in its coordinates
+  private Optional<Rectangle> detectAtLevel(
+    BufferedImage img,
+    Point center,
+    boolean debug,
+    BiConsumer<BufferedImage, String> sendDebugImage
+  ) {
+    var binarizationEvent = RecognitionTrace.stage("manga-block-binarization");
 
     var grayImg = ImageOps.copied(img);
     ImageOps.toGrayscale(grayImg);
@@ -57,9 +88,11 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
       ImageOps.negate(grayImg);
     }
 
-    var erodedImg = ImageOps.eroded(grayImg, 2, 2);
-    var imgArr = ImageOps.toGrayArray(erodedImg);
+    var imgArr = GrayMorphology.eroded(
+      ImageOps.toGrayArray(grayImg), img.getWidth(), img.getHeight(), EROSION_ELEMENT
+    );
     ImageOps.otsuThreshold(imgArr);
+    binarizationEvent.finish(img);
     if (debug && DEBUG_OTSU) {
       var otsuImg = ImageOps.grayArrayToBufferedImage(imgArr, img.getWidth(), img.getHeight());
       sendDebugImage.accept(otsuImg, "Otsu threshold");
@@ -75,6 +108,7 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     final Graphics debugGfx = debugGfxInit;
 
     // Extract and pre-filter connected components (ccs)
+    var componentsEvent = RecognitionTrace.stage("manga-block-components");
     var initialCCs = extractCCs(imgArr, img.getWidth(), img.getHeight());
     if (debug && DEBUG_INITIAL_CCS) {
       debugGfx.setColor(Color.GREEN);
@@ -89,8 +123,10 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     }
 
     // Find ccs near the user's click point (assumed to be the center of the input image)
-    var nearCCs = nearCCs(prefilteredCCs, center);
+    var ccIndex = new RectangleIndex(prefilteredCCs, NEAR_CC_MAX_DISTANCE);
+    var nearCCs = ccIndex.withinDistance(center, NEAR_CC_MAX_DISTANCE);
     if (nearCCs.isEmpty()) {
+      componentsEvent.finish(img);
       LOG.debug("Found no near connected compoments");
       return Optional.empty();
     }
@@ -120,6 +156,7 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     var grownCCs = growCCs(
       exemplarFilteredCCs, center, img.getWidth() - 1, img.getHeight() - 1, exemplarCC
     );
+    componentsEvent.finish(img);
     if (debug && DEBUG_GROWN_CCS) {
       debugGfx.setColor(Color.MAGENTA);
       grownCCs.forEach(cc -> cc.drawWith(debugGfx));
@@ -127,15 +164,19 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     }
 
     // Fill a mask with the rectangles of the previously filtered and enlarged ccs
-    var mask = createMaskWithCCs(img, grownCCs);
+    var contoursEvent = RecognitionTrace.stage("manga-block-contours");
+    var mask = RectangleMask.rasterize(grownCCs, img.getWidth(), img.getHeight());
     if (debug && DEBUG_MASK) {
-      sendDebugImage.accept(mask, "Mask with grown connected components");
+      sendDebugImage.accept(
+        RectangleMask.toImage(mask, img.getWidth(), img.getHeight()),
+        "Mask with grown connected components"
+      );
     }
 
     // Find the bounding box of the largest contour in the mask image containing the center point
-    var maskArr = ImageOps.maskImageToBinaryArray(mask);
-    var contours = ContourFinder.find(maskArr, mask.getWidth(), mask.getHeight());
+    var contours = ContourFinder.find(mask, img.getWidth(), img.getHeight());
     var maybePreliminaryBoxRes = preliminaryBox(contours, center, debug, debugGfx);
+    contoursEvent.finish(img);
     if (maybePreliminaryBoxRes.isEmpty()) {
       LOG.debug("Could not determine preliminary block");
       return Optional.empty();
@@ -169,8 +210,8 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     //   We can get rid of this possible excessive extension by going over all the viable CCs again
     // and creating a new box according to the extends of only those CCs whose centers lie within
     // `reducedBox`.
-    var ccsWithinReducedBox = exemplarFilteredCCs.stream()
-      .filter(cc -> reducedBox.contains(cc.getCenter()))
+    var ccsWithinReducedBox = ccIndex.centersWithin(reducedBox).stream()
+      .filter(cc -> isExemplarLike(cc, exemplarCC))
       .toList();
     var remadeBox = Rectangle.around(ccsWithinReducedBox);
 
@@ -190,22 +231,91 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     return Optional.ofNullable(finalBox);
   }
 
+  // Detects all the text blocks on a whole page at once. There is no click point here to take the
+  // exemplar character from and to grow the components towards, so instead each component is
+  // compared against an exemplar made from its own neighbours and is grown evenly on all sides.
+  // Unlike `detect()`, this always runs at full resolution: a page mixes text of different sizes,
+  // and a single downscale chosen for one of them would lose the smaller ones (see `BlockPyramid`)
+  public List<Rectangle> detectAll(
+    BufferedImage img, boolean debug, BiConsumer<BufferedImage, String> sendDebugImage
+  ) {
+    if (img.getType() != BufferedImage.TYPE_INT_RGB) {
+      img = ImageOps.withoutAlphaChannel(img);
+    }
+    var w = img.getWidth();
+    var h = img.getHeight();
+
+    var grayImg = ImageOps.copied(img);
+    ImageOps.toGrayscale(grayImg);
+    if (ImageOps.isDarkDominated(grayImg)) {
+      ImageOps.negate(grayImg);
+    }
+    var imgArr = GrayMorphology.eroded(ImageOps.toGrayArray(grayImg), w, h, EROSION_ELEMENT);
+    ImageOps.otsuThreshold(imgArr);
+
+    var ccs = prefilteredCCs(grayImg, w, extractCCs(imgArr, w, h));
+    var ccIndex = new RectangleIndex(ccs, NEAR_CC_MAX_DISTANCE);
+    var textCCs = new ArrayList<Rectangle>();
+    var grownCCs = new ArrayList<Rectangle>();
+    for (var cc : ccs) {
+      var nearCCs = ccIndex.withinDistance(cc.getCenter(), NEAR_CC_MAX_DISTANCE);
+      if (nearCCs.size() < PAGE_MIN_NEAR_CCS) {
+        continue;
+      }
+      var exemplarCC = createExemplarCC(nearCCs);
+      if (!isExemplarLike(cc, exemplarCC)) {
+        continue;
+      }
+      textCCs.add(cc);
+      var growth = growth(cc, exemplarCC);
+      var growX = (int) (growth.x() * PAGE_GROWTH_FACTOR);
+      var growY = (int) (growth.y() * PAGE_GROWTH_FACTOR);
+      grownCCs.add(Rectangle.ofEdges(
+        Math.max(0, cc.getLeft() - growX),
+        Math.max(0, cc.getTop() - growY),
+        Math.min(w - 1, cc.getRight() + growX),
+        Math.min(h - 1, cc.getBottom() + growY)
+      ));
+    }
+
+    // Each outer contour of the grown components is a candidate block, remade, as in `detect()`,
+    // from the extents of the components whose centers lie within it
+    var mask = RectangleMask.rasterize(grownCCs, w, h);
+    var textCCIndex = new RectangleIndex(textCCs, NEAR_CC_MAX_DISTANCE);
+    var blocks = new ArrayList<Rectangle>();
+    for (var contour : ContourFinder.find(mask, w, h)) {
+      if (contour.type == Contour.Type.HOLE) {
+        continue;
+      }
+      var blockCCs = textCCIndex.centersWithin(contour.getBoundingBox());
+      if (blockCCs.size() < PAGE_MIN_BLOCK_CCS) {
+        continue;
+      }
+      var margin = createExemplarCC(blockCCs).averageDimension() / 3;
+      blocks.add(Rectangle.around(blockCCs).expandedNonNegative(margin).clamped(w - 1, h - 1));
+    }
+
+    if (debug && DEBUG_PAGE_BLOCKS) {
+      var debugImg = ImageOps.copied(img);
+      var debugGfx = debugImg.createGraphics();
+      debugGfx.setColor(Color.MAGENTA);
+      grownCCs.forEach(cc -> cc.drawWith(debugGfx));
+      debugGfx.setColor(Color.GREEN);
+      blocks.forEach(b -> b.drawWith(debugGfx));
+      sendDebugImage.accept(debugImg, "Manga page blocks");
+      debugGfx.dispose();
+    }
+
+    return blocks;
+  }
+
+  // Components too small or too large to be characters are already left out by the labeler
   private static List<Rectangle> extractCCs(int[] imgArr, int w, int h) {
-    var rawCCs = new ConnectedComponentExtractor().extract(imgArr, w, h);
-    return Arrays.stream(rawCCs)
-      .skip(1)
-      .map(ConnectedComponent::rectangle)
-      .toList();
+    return ConnectedComponentLabeler.label(imgArr, w, h, CC_SIZE_FILTER).rectangles();
   }
 
   private static List<Rectangle> prefilteredCCs(BufferedImage img, int w, List<Rectangle> ccs) {
-    return ccs.stream()
-      .filter(cc ->
-        cc.dimensionsWithin(2, 150)
-        && !isLikelyTinyFurigana(img, w, cc)
-        && cc.getArea() < 4000
-      )
-      .toList();
+    return ccs.stream().filter(cc -> !isLikelyTinyFurigana(img, w, cc)).toList();
   }
 
   private static boolean isLikelyTinyFurigana(BufferedImage img, int w, Rectangle cc) {
@@ -215,17 +325,6 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     return ImageOps.deviation(img, w, cc) < 45;
   }
 
-  private static List<Rectangle> nearCCs(List<Rectangle> ccs, Point p) {
-    var res = new ArrayList<Rectangle>(32);
-    for (var cc : ccs) {
-      var dist = cc.getCenter().distanceFrom(p);
-      if (dist <= NEAR_CC_MAX_DISTANCE) {
-        res.add(cc);
-      }
-    }
-    return res;
-  }
-
   private record ExemplarConnectedComponent(int width, int height, int averageDimension) {}
 
   private static ExemplarConnectedComponent createExemplarCC(List<Rectangle> sourceCCs) {
@@ -243,19 +342,19 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
   private static List<Rectangle> exemplarFilteredCCs(
     ExemplarConnectedComponent exemplar, List<Rectangle> ccs
   ) {
+    return ccs.stream().filter(cc -> isExemplarLike(cc, exemplar)).toList();
+  }
+
+  private static boolean isExemplarLike(Rectangle cc, ExemplarConnectedComponent exemplar) {
     final var maxW = exemplar.width() * 3;
     final var maxH = exemplar.height() * 4;
     final var maxArea = exemplar.averageDimension() * exemplar.averageDimension() * 5;
     final var minWForSquareish = exemplar.width() / 2;
     //noinspection OverlyComplexBooleanExpression
-    return ccs.stream()
-      .filter(cc ->
-        cc.widthWithin(2, maxW)
-        && cc.heightWithin(2, maxH)
-        && cc.getArea() <= maxArea
-        && !(cc.getRatio() > 0.65 && cc.getRatio() < 1.5 && cc.getWidth() < minWForSquareish)
-      )
-        .toList();
+    return cc.widthWithin(2, maxW)
+      && cc.heightWithin(2, maxH)
+      && cc.getArea() <= maxArea
+      && !(cc.getRatio() > 0.65 && cc.getRatio() < 1.5 && cc.getWidth() < minWForSquareish);
   }
 
   private static List<Rectangle> growCCs(
@@ -276,19 +375,9 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
       var distCoeff =
         distCoeffFactorA
         / (Math.pow(normalizedDist, distCoeffFactorB) + distCoeffFactorA);
-      var growX = exemplar.width() * 1.9 * distCoeff;
-      var growY = exemplar.height() * 1.3 * distCoeff;
-
-      // Special case hack: こ, に and similar tend to be detected as separate components, so we
-      // need to grow them vertically a lot more than in the ordinary case
-      var ratio = cc.getRatio();
-      if (cc.getHeight() < exemplar.height() && ratio > 1.75 && ratio < 3.25) {
-        growY = cc.getHeight() * 3.75 * distCoeff;
-      }
-      // Analogous hack for certain fonts' い, as well as some characters that are overall slender
-      if (cc.getWidth() < exemplar.width() && ratio > 0.3 && ratio < 0.55) {
-        growX = cc.getWidth() * 3.75 * distCoeff;
-      }
+      var growth = growth(cc, exemplar);
+      var growX = growth.x() * distCoeff;
+      var growY = growth.y() * distCoeff;
 
       var left = cc.getLeft();
       var right = cc.getRight();
@@ -325,15 +414,25 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     return res;
   }
 
-  private static BufferedImage createMaskWithCCs(BufferedImage sourceImg, List<Rectangle> ccs) {
-    var mask = new BufferedImage(sourceImg.getWidth(), sourceImg.getHeight(), sourceImg.getType());
-    var gfx = mask.createGraphics();
-    gfx.setColor(Color.BLACK);
-    gfx.fillRect(0, 0, sourceImg.getWidth(), sourceImg.getHeight());
-    gfx.setColor(Color.WHITE);
-    ccs.forEach(cc -> cc.drawFilledWith(gfx));
-    gfx.dispose();
-    return mask;
+  private record Growth(double x, double y) {}
+
+  // How far to grow `cc` towards the center of its text block, not accounting for its distance
+  // from the center
+  private static Growth growth(Rectangle cc, ExemplarConnectedComponent exemplar) {
+    var growX = exemplar.width() * 1.9;
+    var growY = exemplar.height() * 1.3;
+
+    // Special case hack: こ, に and similar tend to be detected as separate components, so we
+    // need to grow them vertically a lot more than in the ordinary case
+    var ratio = cc.getRatio();
+    if (cc.getHeight() < exemplar.height() && ratio > 1.75 && ratio < 3.25) {
+      growY = cc.getHeight() * 3.75;
+    }
+    // Analogous hack for certain fonts' い, as well as some characters that are overall slender
+    if (cc.getWidth() < exemplar.width() && ratio > 0.3 && ratio < 0.55) {
+      growX = cc.getWidth() * 3.75;
+    }
+    return new Growth(growX, growY);
   }
 
   private record PreliminaryBoxResult(Rectangle box, Contour sourceContour) {}
@@ -385,13 +484,15 @@ public class MangaAutoBlockDetector implements AutoBlockDetector {
     if (debug && DEBUG_CONTOUR) {
       debugGfx.setColor(Color.RED);
     }
-    for (var p : sourceContour.points) {
-      var xRel = p.x() - box.getLeft();
-      if (topEdge[xRel] == -1 || p.y() < topEdge[xRel]) {
-        topEdge[xRel] = p.y();
+    for (var i = 0; i < sourceContour.numPoints(); i++) {
+      var x = sourceContour.x(i);
+      var y = sourceContour.y(i);
+      var xRel = x - box.getLeft();
+      if (topEdge[xRel] == -1 || y < topEdge[xRel]) {
+        topEdge[xRel] = y;
       }
       if (debug && DEBUG_CONTOUR) {
-        debugGfx.drawRect(p.x(), p.y(), 2, 2);
+        debugGfx.drawRect(x, y, 2, 2);
       }
     }
 
@@ -4,26 +4,66 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import javax.imageio.ImageIO;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import io.github.kamitejp.platform.GenericPlatform;
+import io.github.kamitejp.util.Executor;
 
+// Recognizes images that appear in a directory. File events go through a pipeline:
+//   1. Events for the same file are coalesced until the file has not changed for a while, so that
+//      a file is neither read while still being written nor recognized once per write.
+//   2. Settled files are decoded off the watcher thread, retrying if the data is still incomplete.
+//   3. Decoded images wait in a bounded queue for recognition, one at a time. When images arrive
+//      faster than they can be recognized, the oldest waiting ones are dropped.
 public class OCRDirectoryWatcher {
   private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
 
+  // How long a file has to go without new events before it is considered fully written
+  private static final long SETTLE_DELAY_MS = 250;
+  private static final int DECODE_ATTEMPTS = 3;
+  private static final long DECODE_RETRY_DELAY_MS = 200;
+  private static final int RECOGNITION_QUEUE_CAPACITY = 3;
+
   private final Path dirPath;
   private final WatchService watchService;
   private final Consumer<BufferedImage> recognizeImageFn;
   private final Thread worker;
+  private final Thread recognitionWorker;
+  private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+  private final BlockingQueue<QueuedImage> recognitionQueue =
+    new ArrayBlockingQueue<>(RECOGNITION_QUEUE_CAPACITY);
+  private final AtomicLong numEvents = new AtomicLong();
+  private final AtomicLong numCoalescedEvents = new AtomicLong();
+  private final AtomicLong numDecodeFailures = new AtomicLong();
+  private final AtomicLong numDroppedImages = new AtomicLong();
+  private final AtomicLong numRecognizedImages = new AtomicLong();
+
+  // A file with events whose settle delay has not elapsed yet. `generation` is bumped on every
+  // event, so that only the check scheduled after the latest one goes through
+  private static final class PendingFile {
+    private long generation;
+    private long size;
+  }
+
+  private record QueuedImage(Path path, BufferedImage img) {}
 
   public OCRDirectoryWatcher(
     String rawDirPath, Consumer<BufferedImage> recognizeImageFn
@@ -40,14 +80,17 @@ public class OCRDirectoryWatcher {
       throw new OCRDirectoryWatcherCreationException(e);
     }
     try {
+      // ENTRY_CREATE also covers files atomically moved into the directory
       var watchKey = dirPath.register(
-        watchService, StandardWatchEventKinds.ENTRY_MODIFY
+        watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY
       );
       worker = new Thread(
-        new Worker(watchService, watchKey, this::handleFileModified)
+        new Worker(watchService, watchKey, this::handleFileModifiedOrCreated)
       );
-      LOG.debug("Starting OCR directory watcher worker thread");
+      recognitionWorker = new Thread(this::runRecognitionWorker);
+      LOG.debug("Starting OCR directory watcher worker threads");
       worker.start();
+      recognitionWorker.start();
     } catch (IOException e) {
       throw new OCRDirectoryWatcherCreationException(e);
     }
@@ -55,24 +98,123 @@ public class OCRDirectoryWatcher {
 
   public void destroy() {
     worker.interrupt();
+    recognitionWorker.interrupt();
     try {
       watchService.close();
     } catch (IOException e) {
       LOG.debug("Failed to close watch service. See stderr for stack trace");
       e.printStackTrace();
     }
+    LOG.debug(
+      "OCR directory watcher stats: events: {}, coalesced events: {}, decode failures: {},"
+      + " dropped images: {}, recognized images: {}",
+      numEvents, numCoalescedEvents, numDecodeFailures, numDroppedImages, numRecognizedImages
+    );
   }
 
-  private void handleFileModified(Path relativePath) {
+  private void handleFileModifiedOrCreated(Path relativePath) {
+    numEvents.incrementAndGet();
     var absolutePath = dirPath.resolve(relativePath);
-    GenericPlatform.openImage(absolutePath)
-      .ifPresentOrElse(
-        img -> {
-          LOG.debug("Recognizing image from watched directory: {}", absolutePath);
-          recognizeImageFn.accept(img);
-        },
-        () -> LOG.error("OCR directory watcher did not receive image: {}", absolutePath)
-      );
+    long generation;
+    synchronized (pendingFiles) {
+      var pending = pendingFiles.get(absolutePath);
+      if (pending == null) {
+        pending = new PendingFile();
+        pending.size = sizeOf(absolutePath);
+        pendingFiles.put(absolutePath, pending);
+      } else {
+        numCoalescedEvents.incrementAndGet();
+      }
+      generation = ++pending.generation;
+    }
+    scheduleSettleCheck(absolutePath, generation);
+  }
+
+  private void scheduleSettleCheck(Path path, long generation) {
+    CompletableFuture.delayedExecutor(SETTLE_DELAY_MS, TimeUnit.MILLISECONDS)
+      .execute(() -> checkSettled(path, generation));
+  }
+
+  private void checkSettled(Path path, long generation) {
+    synchronized (pendingFiles) {
+      var pending = pendingFiles.get(path);
+      if (pending == null || pending.generation != generation) {
+        // A later event has scheduled its own check
+        return;
+      }
+      // Some writers do not produce an event for every write, so also wait for the size to settle
+      var size = sizeOf(path);
+      if (size != pending.size) {
+        pending.size = size;
+        scheduleSettleCheck(path, generation);
+        return;
+      }
+      pendingFiles.remove(path);
+    }
+    Executor.get().execute(() -> decode(path, 1));
+  }
+
+  private void decode(Path path, int attempt) {
+    if (!Files.isRegularFile(path)) {
+      LOG.debug("Ignoring watched directory entry that is not a regular file: {}", path);
+      return;
+    }
+
+    BufferedImage img = null;
+    try {
+      img = ImageIO.read(path.toFile());
+    } catch (IOException e) {
+      LOG.debug("Could not decode image from watched directory (attempt {}): {}", attempt, e);
+    }
+    if (img == null) {
+      if (attempt < DECODE_ATTEMPTS) {
+        CompletableFuture.delayedExecutor(DECODE_RETRY_DELAY_MS, TimeUnit.MILLISECONDS)
+          .execute(() -> decode(path, attempt + 1));
+      } else {
+        numDecodeFailures.incrementAndGet();
+        LOG.error("OCR directory watcher could not read image: {}", path);
+      }
+      return;
+    }
+
+    enqueueForRecognition(new QueuedImage(path, img));
+  }
+
+  private void enqueueForRecognition(QueuedImage queued) {
+    synchronized (recognitionQueue) {
+      while (!recognitionQueue.offer(queued)) {
+        var dropped = recognitionQueue.poll();
+        if (dropped != null) {
+          numDroppedImages.incrementAndGet();
+          LOG.info(
+            "Dropped an image from watched directory, since newer ones arrived before it could be"
+            + " recognized: {}",
+            dropped.path()
+          );
+        }
+      }
+    }
+  }
+
+  private void runRecognitionWorker() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        var queued = recognitionQueue.take();
+        LOG.debug("Recognizing image from watched directory: {}", queued.path());
+        recognizeImageFn.accept(queued.img());
+        numRecognizedImages.incrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      LOG.debug("Recognition worker was interrupted. Aborting");
+    }
+  }
+
+  private static long sizeOf(Path path) {
+    try {
+      return Files.size(path);
+    } catch (IOException e) {
+      return -1;
+    }
   }
 
   private static class Worker implements Runnable {
@@ -104,6 +246,10 @@ public class OCRDirectoryWatcher {
               () -> ev.kind(),
               () -> ev.context()
             );
+            if (ev.kind() == StandardWatchEventKinds.OVERFLOW) {
+              LOG.warn("OCR directory watcher missed some file events due to their volume");
+              continue;
+            }
             if (ev.context() != null) {
               fileModifiedOrCreatedCb.accept((Path) ev.context());
             }
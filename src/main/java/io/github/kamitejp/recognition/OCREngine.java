@@ -17,7 +17,31 @@ public sealed interface OCREngine
           OCREngine.EasyOCROnline,
           OCREngine.HiveOCROnline,
           OCREngine.None {
-  record Tesseract(String binPath) implements OCREngine {
+  record Tesseract(
+    String binPath,
+    boolean inProcess,
+    String libPath,
+    int latencyBudgetMS,
+    int consensusVariants,
+    VariantPruning variantPruning
+  ) implements OCREngine {
+    public record VariantPruning(
+      boolean enable, double minContributionRate, int minSamples, int resampleInterval
+    ) {}
+
+    // A copy that always waits for all of the variants, without a latency budget or a consensus
+    // finish
+    public Tesseract withoutEarlyFinish() {
+      return new Tesseract(
+        binPath,
+        inProcess,
+        libPath,
+        /* latencyBudgetMS */ 0,
+        /* consensusVariants */ 0,
+        variantPruning
+      );
+    }
+
     @Override
     public String toString() {
       return "Tesseract OCR";
@@ -188,7 +212,19 @@ public sealed interface OCREngine
 
     engine = switch (config.ocr().engine()) {
       case TESSERACT ->
-        new OCREngine.Tesseract(config.ocr().tesseract().path());
+        new OCREngine.Tesseract(
+          config.ocr().tesseract().path(),
+          config.ocr().tesseract().inProcess(),
+          config.ocr().tesseract().libPath(),
+          config.ocr().tesseract().latencyBudgetMS(),
+          config.ocr().tesseract().consensusVariants(),
+          new OCREngine.Tesseract.VariantPruning(
+            config.ocr().tesseract().variantPruning().enable(),
+            config.ocr().tesseract().variantPruning().minContributionRate(),
+            config.ocr().tesseract().variantPruning().minSamples(),
+            config.ocr().tesseract().variantPruning().resampleInterval()
+          )
+        );
       case MANGAOCR  ->
         OCREngine.MangaOCR.uninitialized(config.ocr().mangaocr().pythonPath());
       case MANGAOCR_ONLINE  ->
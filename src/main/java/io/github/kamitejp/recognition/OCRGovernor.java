@@ -0,0 +1,142 @@
+package io.github.kamitejp.recognition;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.kamitejp.diagnostics.RecognitionTrace;
+
+// Limits the number of OCR engine jobs (e.g., Tesseract processes) that run at once across all
+// recognition requests, regardless of where they come from (keybindings, the directory watcher,
+// API commands). A freed slot goes to the waiting request that currently runs the fewest jobs, so
+// that one request fanning out to many variants does not starve the others
+public final class OCRGovernor {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final OCRGovernor INSTANCE =
+    new OCRGovernor(Runtime.getRuntime().availableProcessors());
+
+  private final int maxActiveJobs;
+  private final int threadsPerJob;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition slotReleased = lock.newCondition();
+  private final List<Waiter> waiters = new ArrayList<>();
+  private int numActiveJobs;
+  private long nextWaiterSeq;
+  private long numWaits;
+  private long totalWaitMS;
+
+  // A group of jobs belonging to a single recognition request
+  public static final class Request {
+    private final long traceRequestID = RecognitionTrace.currentRequestID();
+    private int numActiveJobs;
+  }
+
+  private record Waiter(Request request, long seq) {}
+
+  private OCRGovernor(int maxActiveJobs) {
+    this.maxActiveJobs = Math.max(1, maxActiveJobs);
+    this.threadsPerJob =
+      Math.max(1, Runtime.getRuntime().availableProcessors() / this.maxActiveJobs);
+  }
+
+  public static OCRGovernor get() {
+    return INSTANCE;
+  }
+
+  public Request newRequest() {
+    return new Request();
+  }
+
+  // Runs the job once a slot is available and it is the request's turn
+  public <T> T run(Request request, Callable<T> job) throws Exception {
+    acquire(request);
+    try {
+      return job.call();
+    } finally {
+      release(request);
+    }
+  }
+
+  // The number of threads each job can use without oversubscribing the CPU when all the slots are
+  // taken. Fixed, since a job cannot give threads back when more jobs are admitted after it
+  public int getThreadsPerJob() {
+    return threadsPerJob;
+  }
+
+  private void acquire(Request request) throws InterruptedException {
+    var event = RecognitionTrace.slotWait(request.traceRequestID);
+    lock.lock();
+    try {
+      var waiter = new Waiter(request, nextWaiterSeq++);
+      waiters.add(waiter);
+      var startTime = System.currentTimeMillis();
+      var acquired = false;
+      try {
+        while (numActiveJobs >= maxActiveJobs || nextInLine() != waiter) {
+          slotReleased.await();
+        }
+        acquired = true;
+      } finally {
+        waiters.remove(waiter);
+        // Leaving the line without a slot (when interrupted, e.g., because the job was superseded)
+        // can make another waiter next in line while a slot is free
+        if (!acquired) {
+          slotReleased.signalAll();
+        }
+      }
+      numActiveJobs++;
+      request.numActiveJobs++;
+      // The next waiter in line might not have to wait for a release
+      if (numActiveJobs < maxActiveJobs) {
+        slotReleased.signalAll();
+      }
+
+      var waitMS = System.currentTimeMillis() - startTime;
+      numWaits++;
+      totalWaitMS += waitMS;
+      var averageWaitMS = totalWaitMS / numWaits;
+      event.finish(waiters.size(), averageWaitMS);
+      if (waitMS > 0) {
+        LOG.debug(
+          "OCR job waited {} ms for a slot (queue depth: {}, average wait: {} ms)",
+          waitMS, waiters.size(), averageWaitMS
+        );
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(Request request) {
+    lock.lock();
+    try {
+      numActiveJobs--;
+      request.numActiveJobs--;
+      slotReleased.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // The waiter whose request runs the fewest jobs, the earliest one on ties
+  private Waiter nextInLine() {
+    Waiter next = null;
+    for (var w : waiters) {
+      if (
+        next == null
+        || w.request().numActiveJobs < next.request().numActiveJobs
+        || (w.request().numActiveJobs == next.request().numActiveJobs && w.seq() < next.seq())
+      ) {
+        next = w;
+      }
+    }
+    return next;
+  }
+}
@@ -88,12 +88,18 @@ public class OCRSpaceAdapter implements RemoteOCRAdapter {
 
     // QUAL: (DRY) Same segment in BaseHFOCRAdapter
     HttpResponse<String> res;
+    var resFuture = HTTP.client().sendAsync(req, HttpResponse.BodyHandlers.ofString());
     try {
-      var resFuture = HTTP.client().sendAsync(req, HttpResponse.BodyHandlers.ofString());
       res = resFuture.get(requestTimeout, TimeUnit.SECONDS);
     } catch (TimeoutException e) {
+      resFuture.cancel(/* mayInterruptIfRunning */ true);
       return Result.Err(new RemoteOCRRequestError.Timeout());
-    } catch (ExecutionException | InterruptedException e) {
+    } catch (InterruptedException e) {
+      // Abort the exchange instead of leaving it running in the background
+      resFuture.cancel(/* mayInterruptIfRunning */ true);
+      Thread.currentThread().interrupt();
+      return Result.Err(new RemoteOCRRequestError.Cancelled());
+    } catch (ExecutionException e) {
       return Result.Err(new RemoteOCRRequestError.SendFailed(e.getMessage()));
     }
 
@@ -0,0 +1,64 @@
+package io.github.kamitejp.recognition;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.kamitejp.geometry.Rectangle;
+
+// LRU cache of the text blocks detected on whole pages, keyed by a fingerprint of the page
+// capture, so that auto block requests on a page that has already been analyzed only need a lookup.
+// Holds a few pages so that going back and forth between them does not trigger re-analysis
+final class PageBlockCache {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int MAX_ENTRIES = 8;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final Map<Fingerprint, List<Rectangle>> entries;
+
+  // The fingerprint covers every pixel of the page capture exactly, since a page shifted by just a
+  // few pixels already makes the cached block positions wrong
+  record Fingerprint(int width, int height, long hash) {}
+
+  PageBlockCache() {
+    this.entries = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, /* accessOrder */ true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Fingerprint, List<Rectangle>> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+  }
+
+  static Fingerprint fingerprintOf(BufferedImage img) {
+    var w = img.getWidth();
+    var h = img.getHeight();
+    var row = new int[w];
+    var hash = FNV_OFFSET_BASIS;
+    for (var y = 0; y < h; y++) {
+      img.getRGB(0, y, w, 1, row, 0, w);
+      for (var px : row) {
+        hash = (hash ^ (px & 0xFFFFFF)) * FNV_PRIME;
+      }
+    }
+    return new Fingerprint(w, h, hash);
+  }
+
+  synchronized Optional<List<Rectangle>> get(Fingerprint fingerprint) {
+    var blocks = entries.get(fingerprint);
+    LOG.debug("Page block cache {}", blocks == null ? "miss" : "hit");
+    return Optional.ofNullable(blocks);
+  }
+
+  synchronized void put(Fingerprint fingerprint, List<Rectangle> blocks) {
+    entries.put(fingerprint, List.copyOf(blocks));
+  }
+}
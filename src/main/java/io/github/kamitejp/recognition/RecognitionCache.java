@@ -0,0 +1,86 @@
+package io.github.kamitejp.recognition;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.kamitejp.chunk.UnprocessedChunkVariants;
+import io.github.kamitejp.image.ImageOps;
+
+// LRU cache of box recognition results keyed by a checksum of the content of the input image, so
+// that repeated captures of the same text (e.g., after a backlog jump) do not have to go through
+// OCR again. The cache is exact: a capture that differs by more than slight noise, e.g., one that
+// is shifted by a pixel, is a miss. Perceptual hashes were not fine-grained enough to tell apart
+// captures that differ by a single character
+final class RecognitionCache {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  // Size of the side of the cells that the checksum is computed over. Has to be small enough for
+  // the checksum to change when a single character of the text does
+  private static final int CHECKSUM_CELL_SIZE = 2;
+
+  private final long ttlMS;
+  private final Map<Key, Entry> entries;
+  private long numHits;
+  private long numMisses;
+
+  record Key(
+    String engine, TextOrientation textOrientation, int width, int height, long checksum
+  ) {}
+
+  private record Entry(UnprocessedChunkVariants chunkVariants, long createdAtMS) {}
+
+  RecognitionCache(int maxEntries, long ttlMS) {
+    this.ttlMS = ttlMS;
+    this.entries = new LinkedHashMap<>(maxEntries, 0.75f, /* accessOrder */ true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  static Key keyOf(BufferedImage img, OCREngine engine, TextOrientation textOrientation) {
+    return new Key(
+      engine.toString(),
+      textOrientation,
+      img.getWidth(),
+      img.getHeight(),
+      ImageOps.grayChecksum(img, CHECKSUM_CELL_SIZE)
+    );
+  }
+
+  // Returns a copy of the cached chunk variants, since they are modified during processing
+  synchronized Optional<UnprocessedChunkVariants> get(Key key) {
+    var entry = entries.get(key);
+    if (entry != null && System.currentTimeMillis() - entry.createdAtMS() > ttlMS) {
+      entries.remove(key);
+      entry = null;
+    }
+    if (entry == null) {
+      numMisses++;
+      LOG.debug("Recognition cache miss (hits: {}, misses: {})", numHits, numMisses);
+      return Optional.empty();
+    }
+    numHits++;
+    LOG.debug("Recognition cache hit (hits: {}, misses: {})", numHits, numMisses);
+    return Optional.of(entry.chunkVariants().copied());
+  }
+
+  synchronized void put(Key key, UnprocessedChunkVariants chunkVariants) {
+    entries.put(key, new Entry(chunkVariants.copied(), System.currentTimeMillis()));
+  }
+
+  synchronized long getNumHits() {
+    return numHits;
+  }
+
+  synchronized long getNumMisses() {
+    return numMisses;
+  }
+}
@@ -2,6 +2,11 @@ package io.github.kamitejp.recognition;
 
 import java.awt.image.BufferedImage;
 import java.lang.invoke.MethodHandles;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import io.github.kamitejp.chunk.UnprocessedChunkVariants;
@@ -9,11 +14,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import io.github.kamitejp.config.Config;
+import io.github.kamitejp.diagnostics.RecognitionTrace;
 import io.github.kamitejp.geometry.Point;
 import io.github.kamitejp.geometry.Rectangle;
 import io.github.kamitejp.platform.Platform;
 import io.github.kamitejp.platform.PlatformOCRInitializationException;
 import io.github.kamitejp.status.ProgramStatus;
+import io.github.kamitejp.util.Result;
 
 public class RecognitionConductor {
   private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
@@ -25,6 +32,31 @@ public class RecognitionConductor {
   private final Consumer<String> notifyUserOfErrorFn;
   private final Consumer<RecognizerStatus.Kind> updateAndSendRecognizerStatusFn;
   private Recognizer recognizer;
+  // Guards the job state and orders the status updates sent on behalf of jobs
+  private final ReentrantLock jobsLock = new ReentrantLock();
+  private final Map<JobKind, Job> activeJobs = new EnumMap<>(JobKind.class);
+  private RegionWatcher regionWatcher;
+  // Screen area where manga pages are displayed, within which auto block requests are answered
+  // from whole-page analysis. Null if not configured
+  private volatile Rectangle pageArea;
+
+  // Kinds of recognition jobs. A new job supersedes the in-flight job of the same kind, if any
+  private enum JobKind {
+    SCREEN, // Recognition of a screen area
+    IMAGE,  // Recognition of an image received from outside (API, watched directory)
+    WATCH   // Recognition of a watched region. Its errors are not notified to the user
+  }
+
+  private static final class Job {
+    private final JobKind kind;
+    private Thread thread;
+    private RecognizerStatus.Kind statusKind;
+    private volatile boolean superseded;
+
+    Job(JobKind kind) {
+      this.kind = kind;
+    }
+  }
 
   public RecognitionConductor(
     Platform platform,
@@ -56,6 +88,13 @@ public class RecognitionConductor {
             platform,
             engine,
             status.isDebug(),
+            status.getProfileNames(),
+            config.ocr().cache().enable()
+              ? new RecognitionCache(
+                  config.ocr().cache().maxEntries(),
+                  TimeUnit.SECONDS.toMillis(config.ocr().cache().ttl())
+                )
+              : null,
             recognizerEventCb
           );
           unavailable = false;
@@ -79,112 +118,174 @@ public class RecognitionConductor {
     }
     if (unavailable) {
       updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.UNAVAILABLE);
+    } else {
+      watchRegions(config);
+      updatePageArea(config);
+    }
+  }
+
+  public void updatePageArea(Config config) {
+    var area = config.ocr().pageArea();
+    pageArea = area == null
+      ? null
+      : Rectangle.ofStartAndDimensions(area.x(), area.y(), area.width(), area.height());
+  }
+
+  // (Re)starts watching the regions marked for watching in the config, if any
+  public synchronized void watchRegions(Config config) {
+    if (regionWatcher != null) {
+      regionWatcher.destroy();
+      regionWatcher = null;
+    }
+    if (recognizer == null || config.ocr().regions() == null) {
+      return;
+    }
+    var regions = config.ocr().regions().stream()
+      .filter(Config.OCR.Region::watch)
+      .map(r -> new RegionWatcher.Region(
+        Rectangle.ofStartAndDimensions(r.x(), r.y(), r.width(), r.height()),
+        r.autoNarrow()
+      ))
+      .toList();
+    if (regions.isEmpty()) {
+      return;
     }
+    var watchConfig = config.ocr().regionWatch();
+    regionWatcher = new RegionWatcher(
+      regions,
+      watchConfig.intervalMS(),
+      watchConfig.stablePolls(),
+      /* screenshotFn */ platform::takeAreaScreenshot,
+      /* recognizeFn */ this::recognizeWatchedRegion
+    );
   }
 
-  public void destroy() {
+  public synchronized void destroy() {
+    if (regionWatcher != null) {
+      regionWatcher.destroy();
+    }
     if (recognizer != null) {
       recognizer.destroy();
     }
+    platform.destroyOCR();
   }
 
   public void recognizeRegion(Rectangle region, boolean autoNarrow) {
     LOG.debug("Handling region recognition request ({})", region);
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.PROCESSING);
-    doRecognizeRegion(
-      region,
-      TextOrientation.HORIZONTAL,
-      /* autoBlockHeuristic */ autoNarrow ? AutoBlockHeuristic.GAME_TEXTBOX : null
-    );
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.IDLE);
+    runJob(JobKind.SCREEN, job -> {
+      updateJobStatus(job, RecognizerStatus.Kind.PROCESSING);
+      doRecognizeRegion(
+        job,
+        region,
+        TextOrientation.HORIZONTAL,
+        /* autoBlockHeuristic */ autoNarrow ? AutoBlockHeuristic.GAME_TEXTBOX : null
+      );
+    });
   }
 
   private void doRecognizeRegion(
+    Job job,
     Rectangle region,
     TextOrientation textOrientation,
     AutoBlockHeuristic autoBlockHeuristic
   ) {
-    var screenshotRes = platform.takeAreaScreenshot(region);
+    var screenshotRes = takeScreenshot(region);
     if (screenshotRes.isErr()) {
       var errorNotification = switch (screenshotRes.err()) {
         case SELECTION_CANCELLED -> null;
         default -> "Could not take a screenshot";
       };
-      recognitionAbandon(errorNotification, screenshotRes.err());
+      recognitionAbandon(job, errorNotification, screenshotRes.err());
       return;
     }
 
     if (autoBlockHeuristic != null) {
-      doRecognizeAutoBlockGivenImage(screenshotRes.get(), textOrientation, autoBlockHeuristic);
+      doRecognizeAutoBlockGivenImage(job, screenshotRes.get(), textOrientation, autoBlockHeuristic);
     } else {
-      doRecognizeBox(screenshotRes.get(), textOrientation);
+      doRecognizeBox(job, screenshotRes.get(), textOrientation);
     }
   }
 
+  private void recognizeWatchedRegion(BufferedImage img, boolean autoNarrow) {
+    runJob(JobKind.WATCH, job -> {
+      updateJobStatus(job, RecognizerStatus.Kind.PROCESSING);
+      if (autoNarrow) {
+        doRecognizeAutoBlockGivenImage(
+          job, img, TextOrientation.HORIZONTAL, AutoBlockHeuristic.GAME_TEXTBOX
+        );
+      } else {
+        doRecognizeBox(job, img, TextOrientation.HORIZONTAL);
+      }
+    });
+  }
+
   public void recognizeManualBlockDefault() {
     recognizeManualBlock(TextOrientation.UNKNOWN);
   }
 
   public void recognizeManualBlock(TextOrientation textOrientation) {
     LOG.debug("Handling manual block recognition request");
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.AWAITING_USER_INPUT);
+    runJob(JobKind.SCREEN, job -> {
+      updateJobStatus(job, RecognizerStatus.Kind.AWAITING_USER_INPUT);
 
-    var areaRes = platform.getUserSelectedArea();
-    if (areaRes.isErr()) {
-      var errorNotification = switch (areaRes.err()) {
-        case SELECTION_CANCELLED -> null;
-        default -> "Could not get user screen area selection";
-      };
-      recognitionAbandon(errorNotification, areaRes.err());
-      return;
-    }
+      var areaRes = platform.getUserSelectedArea();
+      if (areaRes.isErr()) {
+        var errorNotification = switch (areaRes.err()) {
+          case SELECTION_CANCELLED -> null;
+          default -> "Could not get user screen area selection";
+        };
+        recognitionAbandon(job, errorNotification, areaRes.err());
+        return;
+      }
 
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.PROCESSING);
-    doRecognizeRegion(areaRes.get(), textOrientation, /* heuristic */ null);
-    // doRecognizeRegion(areaRes.get(), /* heuristic */ AutoBlockHeuristic.GAME_TEXTBOX); // DEV
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.IDLE);
+      updateJobStatus(job, RecognizerStatus.Kind.PROCESSING);
+      doRecognizeRegion(job, areaRes.get(), textOrientation, /* heuristic */ null);
+      // doRecognizeRegion(job, areaRes.get(), AutoBlockHeuristic.GAME_TEXTBOX); // DEV
+    });
   }
 
   public void recognizeManualBlockRotated() {
     LOG.debug("Handling manual rotated block recognition request");
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.AWAITING_USER_INPUT);
+    runJob(JobKind.SCREEN, job -> {
+      updateJobStatus(job, RecognizerStatus.Kind.AWAITING_USER_INPUT);
+
+      var selectedPoints = new Point[3];
+      for (var i = 0; i < 3; i++) {
+        var selectionRes = platform.getUserSelectedPoint(PointSelectionMode.SELECT);
+        if (selectionRes.isErr()) {
+          var errorNotification = switch (selectionRes.err()) {
+            case SELECTION_CANCELLED -> null;
+            default -> "Could not get user screen point selection";
+          };
+          recognitionAbandon(job, errorNotification, selectionRes.err());
+          return;
+        }
+        selectedPoints[i] = selectionRes.get();
+      }
 
-    var selectedPoints = new Point[3];
-    for (var i = 0; i < 3; i++) {
-      var selectionRes = platform.getUserSelectedPoint(PointSelectionMode.SELECT);
-      if (selectionRes.isErr()) {
-        var errorNotification = switch (selectionRes.err()) {
+      updateJobStatus(job, RecognizerStatus.Kind.PROCESSING);
+
+      var maybeRotatedBlock = Recognizer.computeRotatedBlock(selectedPoints);
+      if (maybeRotatedBlock.isEmpty()) {
+        recognitionAbandon(job, "Selection incorrect", RecognitionOpError.SELECTION_INCORRECT);
+        return;
+      }
+      var rotatedBlock = maybeRotatedBlock.get();
+
+      var screenshotRes = takeScreenshot(rotatedBlock.boundingRectangle());
+      if (screenshotRes.isErr()) {
+        var errorNotification = switch (screenshotRes.err()) {
           case SELECTION_CANCELLED -> null;
-          default -> "Could not get user screen point selection";
+          default -> "Could not take a screenshot";
         };
-        recognitionAbandon(errorNotification, selectionRes.err());
+        recognitionAbandon(job, errorNotification, screenshotRes.err());
         return;
       }
-      selectedPoints[i] = selectionRes.get();
-    }
-
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.PROCESSING);
-
-    var maybeRotatedBlock = Recognizer.computeRotatedBlock(selectedPoints);
-    if (maybeRotatedBlock.isEmpty()) {
-      recognitionAbandon("Selection incorrect", RecognitionOpError.SELECTION_INCORRECT);
-      return;
-    }
-    var rotatedBlock = maybeRotatedBlock.get();
 
-    var screenshotRes = platform.takeAreaScreenshot(rotatedBlock.boundingRectangle());
-    if (screenshotRes.isErr()) {
-      var errorNotification = switch (screenshotRes.err()) {
-        case SELECTION_CANCELLED -> null;
-        default -> "Could not take a screenshot";
-      };
-      recognitionAbandon(errorNotification, screenshotRes.err());
-      return;
-    }
-
-    var straightened = Recognizer.straightenRotatedBlockImage(rotatedBlock, screenshotRes.get());
-    doRecognizeBox(straightened, rotatedBlock.textOrientation());
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.IDLE);
+      var straightened =
+        Recognizer.straightenRotatedBlockImage(rotatedBlock, screenshotRes.get());
+      doRecognizeBox(job, straightened, rotatedBlock.textOrientation());
+    });
   }
 
   public void recognizeAutoBlockDefault(PointSelectionMode mode) {
@@ -197,9 +298,10 @@ public class RecognitionConductor {
 
   public void recognizeGivenImage(BufferedImage img) {
     LOG.debug("Handling image given recognition request");
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.PROCESSING);
-    doRecognizeBox(img, TextOrientation.UNKNOWN);
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.IDLE);
+    runJob(JobKind.IMAGE, job -> {
+      updateJobStatus(job, RecognizerStatus.Kind.PROCESSING);
+      doRecognizeBox(job, img, TextOrientation.UNKNOWN);
+    });
   }
 
   @SuppressWarnings("SameParameterValue")
@@ -209,35 +311,69 @@ public class RecognitionConductor {
     LOG.debug(
       "Handling auto block recognition request (mode = {}, heuristic = {})", mode, heuristic
     );
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.AWAITING_USER_INPUT);
+    runJob(JobKind.SCREEN, job -> {
+      updateJobStatus(job, RecognizerStatus.Kind.AWAITING_USER_INPUT);
 
-    var selectionRes = platform.getUserSelectedPoint(mode);
-    if (selectionRes.isErr()) {
-      var errorNotification = switch (selectionRes.err()) {
-        case SELECTION_CANCELLED -> null;
-        default -> "Could not get user screen point selection";
-      };
-      recognitionAbandon(errorNotification, selectionRes.err());
-      return;
-    }
+      var selectionRes = platform.getUserSelectedPoint(mode);
+      if (selectionRes.isErr()) {
+        var errorNotification = switch (selectionRes.err()) {
+          case SELECTION_CANCELLED -> null;
+          default -> "Could not get user screen point selection";
+        };
+        recognitionAbandon(job, errorNotification, selectionRes.err());
+        return;
+      }
 
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.PROCESSING);
+      updateJobStatus(job, RecognizerStatus.Kind.PROCESSING);
 
-    var point = selectionRes.get();
-    var screenshotRes = platform.takeAreaScreenshot(
-      Rectangle.around(point, Recognizer.AUTO_BLOCK_AREA_SIZE)
-    );
+      var point = selectionRes.get();
+      var pageArea = this.pageArea;
+      if (
+        heuristic == AutoBlockHeuristic.MANGA_FULL
+        && pageArea != null
+        && pageArea.contains(point)
+        && tryRecognizeAutoBlockOnPage(job, pageArea, point, textOrientation)
+      ) {
+        return;
+      }
+
+      var screenshotRes = takeScreenshot(Rectangle.around(point, Recognizer.AUTO_BLOCK_AREA_SIZE));
+      if (screenshotRes.isErr()) {
+        var errorNotification = switch (screenshotRes.err()) {
+          case SELECTION_CANCELLED -> null;
+          default -> "Could not take a screenshot";
+        };
+        recognitionAbandon(job, errorNotification, screenshotRes.err());
+        return;
+      }
+
+      doRecognizeAutoBlockGivenImage(job, screenshotRes.get(), textOrientation, heuristic);
+    });
+  }
+
+  // Returns false if no text block was found at `point` in the page analysis, in which case the
+  // request should be handled by detecting the block around the point as usual
+  private boolean tryRecognizeAutoBlockOnPage(
+    Job job, Rectangle pageArea, Point point, TextOrientation textOrientation
+  ) {
+    var screenshotRes = takeScreenshot(pageArea);
     if (screenshotRes.isErr()) {
-      var errorNotification = switch (screenshotRes.err()) {
-        case SELECTION_CANCELLED -> null;
-        default -> "Could not take a screenshot";
-      };
-      recognitionAbandon(errorNotification, screenshotRes.err());
-      return;
+      recognitionAbandon(job, "Could not take a screenshot", screenshotRes.err());
+      return true;
     }
-
-    doRecognizeAutoBlockGivenImage(screenshotRes.get(), textOrientation, heuristic);
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.IDLE);
+    var maybeBlockImg = recognizer.textBlockOnPage(
+      screenshotRes.get(),
+      new Point(point.x() - pageArea.getLeft(), point.y() - pageArea.getTop())
+    );
+    if (job.superseded) {
+      return true;
+    }
+    if (maybeBlockImg.isEmpty()) {
+      LOG.debug("Found no text block at the selected point in page analysis");
+      return false;
+    }
+    doRecognizeBox(job, maybeBlockImg.get(), textOrientation);
+    return true;
   }
 
   @SuppressWarnings("SameParameterValue")
@@ -245,44 +381,137 @@ public class RecognitionConductor {
     BufferedImage img, TextOrientation textOrientation, AutoBlockHeuristic mode
   ) {
     LOG.debug("Handling auto block image recognition request (mode = {})", mode);
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.PROCESSING);
-    doRecognizeAutoBlockGivenImage(img, textOrientation, mode);
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.IDLE);
+    runJob(JobKind.IMAGE, job -> {
+      updateJobStatus(job, RecognizerStatus.Kind.PROCESSING);
+      doRecognizeAutoBlockGivenImage(job, img, textOrientation, mode);
+    });
+  }
+
+  private Result<BufferedImage, RecognitionOpError> takeScreenshot(Rectangle area) {
+    var event = RecognitionTrace.stage("screenshot");
+    var res = platform.takeAreaScreenshot(area);
+    event.finish(area.getWidth(), area.getHeight(), null);
+    return res;
   }
 
   private void doRecognizeAutoBlockGivenImage(
-    BufferedImage img, TextOrientation textOrientation, AutoBlockHeuristic heuristic
+    Job job, BufferedImage img, TextOrientation textOrientation, AutoBlockHeuristic heuristic
   ) {
     var maybeBlockImg = recognizer.autoNarrowToTextBlock(img, heuristic);
+    if (job.superseded) {
+      return;
+    }
     if (maybeBlockImg.isEmpty()) {
       var msg = "Text block detection has failed";
-      notifyUserOfErrorFn.accept(msg);
+      if (job.kind != JobKind.WATCH) {
+        notifyUserOfErrorFn.accept(msg);
+      }
       LOG.info(msg);
       return;
     }
-    doRecognizeBox(maybeBlockImg.get(), textOrientation);
+    doRecognizeBox(job, maybeBlockImg.get(), textOrientation);
   }
 
-  private void doRecognizeBox(BufferedImage img, TextOrientation textOrientation) {
+  private void doRecognizeBox(Job job, BufferedImage img, TextOrientation textOrientation) {
     var recognitionRes = recognizer.recognizeBox(img, textOrientation);
     if (recognitionRes.isErr()) {
       var errorNotification = switch (recognitionRes.err()) {
-        case SELECTION_CANCELLED -> null;
+        case SELECTION_CANCELLED, CANCELLED -> null;
         case INPUT_TOO_SMALL     -> "Input image is too small";
         case ZERO_VARIANTS       -> "Did not recognize any text";
         default -> "OCR has failed.\nCheck control window or console for errors";
       };
-      recognitionAbandon(errorNotification, recognitionRes.err());
+      recognitionAbandon(job, errorNotification, recognitionRes.err());
+      return;
+    }
+    if (job.superseded) {
+      LOG.debug("Discarding the result of a superseded recognition job");
       return;
     }
     chunkVariantsCb.accept(recognitionRes.get().chunkVariants());
   }
 
-  private void recognitionAbandon(String errorNotification, RecognitionOpError errorToLog) {
-    if (errorNotification != null) {
+  // Runs the job on its own thread, first cancelling the in-flight job of the same kind, if any.
+  // Returns once the job has finished
+  private void runJob(JobKind kind, Consumer<Job> body) {
+    var job = new Job(kind);
+    job.thread = Thread.ofVirtual().unstarted(() -> {
+      RecognitionTrace.beginRequest();
+      var event = RecognitionTrace.stage("request");
+      try {
+        body.accept(job);
+      } finally {
+        event.finish();
+        finishJob(job);
+        RecognitionTrace.endRequest();
+      }
+    });
+
+    jobsLock.lock();
+    try {
+      var supersededJob = activeJobs.put(kind, job);
+      if (supersededJob != null) {
+        LOG.debug("Superseding the in-flight {} recognition job", kind);
+        supersededJob.superseded = true;
+        // Interrupting the job thread kills its OCR processes and aborts its HTTP requests
+        supersededJob.thread.interrupt();
+      }
+    } finally {
+      jobsLock.unlock();
+    }
+
+    job.thread.start();
+    try {
+      job.thread.join();
+    } catch (InterruptedException e) {
+      job.thread.interrupt();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void finishJob(Job job) {
+    jobsLock.lock();
+    try {
+      activeJobs.remove(job.kind, job);
+      if (job.superseded) {
+        // The status now belongs to the superseding job
+        return;
+      }
+      // Do not report idleness while a job of another kind is still in progress
+      var statusKind = activeJobs.values().stream()
+        .map(j -> j.statusKind)
+        .filter(Objects::nonNull)
+        .findFirst()
+        .orElse(RecognizerStatus.Kind.IDLE);
+      updateAndSendRecognizerStatusFn.accept(statusKind);
+    } finally {
+      jobsLock.unlock();
+    }
+  }
+
+  private void updateJobStatus(Job job, RecognizerStatus.Kind statusKind) {
+    jobsLock.lock();
+    try {
+      if (job.superseded) {
+        return;
+      }
+      job.statusKind = statusKind;
+      updateAndSendRecognizerStatusFn.accept(statusKind);
+    } finally {
+      jobsLock.unlock();
+    }
+  }
+
+  private void recognitionAbandon(
+    Job job, String errorNotification, RecognitionOpError errorToLog
+  ) {
+    if (job.superseded) {
+      LOG.debug("Superseded recognition job has been abandoned ({})", errorToLog);
+      return;
+    }
+    if (errorNotification != null && job.kind != JobKind.WATCH) {
       notifyUserOfErrorFn.accept(errorNotification);
     }
-    updateAndSendRecognizerStatusFn.accept(RecognizerStatus.Kind.IDLE);
     if (errorToLog != null) {
       recognitionLogError(errorToLog);
     }
@@ -308,7 +537,8 @@ public class RecognitionConductor {
         LOG.error("OCR failed abnormally");
       case ZERO_VARIANTS ->
         LOG.debug("Could not recognize text");
+      case CANCELLED ->
+        LOG.debug("Recognition was cancelled");
     }
   }
 }
-
@@ -9,5 +9,6 @@ public enum RecognitionOpError {
   SCREENSHOT_FAILED,
   INPUT_TOO_SMALL,
   OCR_ERROR,
-  ZERO_VARIANTS
+  ZERO_VARIANTS,
+  CANCELLED
 }
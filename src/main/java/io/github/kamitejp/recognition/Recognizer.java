@@ -1,5 +1,6 @@
 package io.github.kamitejp.recognition;
 
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
@@ -12,26 +13,29 @@ import java.awt.Stroke;
 import java.awt.image.BufferedImage;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import io.github.kamitejp.chunk.UnprocessedChunkVariants;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import io.github.kamitejp.diagnostics.RecognitionTrace;
+import io.github.kamitejp.geometry.ColumnIndex;
 import io.github.kamitejp.geometry.Dimension;
 import io.github.kamitejp.geometry.Point;
 import io.github.kamitejp.geometry.Rectangle;
+import io.github.kamitejp.image.GrayArrayOps;
+import io.github.kamitejp.image.GrayMorphology;
 import io.github.kamitejp.image.ImageOps;
+import io.github.kamitejp.image.StructuringElement;
 import io.github.kamitejp.platform.MangaOCRController;
 import io.github.kamitejp.platform.MangaOCREvent;
 import io.github.kamitejp.platform.MangaOCRInitializationException;
@@ -39,9 +43,7 @@ import io.github.kamitejp.platform.Platform;
 import io.github.kamitejp.platform.PlatformDependentFeature;
 import io.github.kamitejp.platform.dependencies.tesseract.TesseractModel;
 import io.github.kamitejp.platform.dependencies.tesseract.TesseractResult;
-import io.github.kamitejp.recognition.imagefeature.ConnectedComponent;
-import io.github.kamitejp.recognition.imagefeature.ConnectedComponentExtractor;
-import io.github.kamitejp.util.Executor;
+import io.github.kamitejp.recognition.imagefeature.ConnectedComponentLabeler;
 import io.github.kamitejp.util.Maths;
 import io.github.kamitejp.util.Result;
 
@@ -59,6 +61,9 @@ public class Recognizer {
   // Minimum dimension size allowed for box recognition input image
   private static final int BOX_RECOGNITION_INPUT_MIN_DIMENSION = 16;
 
+  // Label of the OCR variant made from the unaltered input image. Never skipped
+  private static final String PRIMARY_VARIANT_LABEL = "initial";
+
   // Size of the border added around the input image to create the `white-border` OCR image variant
   private static final int WITH_BORDER_VARIANT_WHITE_BORDER_SIZE = 10;
 
@@ -85,17 +90,29 @@ public class Recognizer {
   private final boolean debug;
   private final Consumer<RecognizerEvent> eventCb;
   private final Map<AutoBlockHeuristic, AutoBlockDetector> autoBlockDetectors;
+  private final VariantStatistics variantStatistics;
+  private final RecognitionCache recognitionCache;
+  private final MangaAutoBlockDetector pageBlockDetector = new MangaAutoBlockDetector();
+  private final PageBlockCache pageBlockCache = new PageBlockCache();
 
   public Recognizer(
     Platform platform,
     OCREngine uninitializedEngine,
     boolean debug,
+    List<String> profileNames,
+    RecognitionCache recognitionCache,
     Consumer<RecognizerEvent> eventCb
   ) throws RecognizerInitializationException {
     this.platform = platform;
     this.debug = debug;
+    this.recognitionCache = recognitionCache;
     this.eventCb = eventCb;
     this.autoBlockDetectors = new HashMap<>();
+    this.variantStatistics = uninitializedEngine instanceof OCREngine.Tesseract tesseractEngine
+      ? VariantStatistics.load(
+          platform.getDataDirPath(), profileNames, tesseractEngine.variantPruning()
+        )
+      : null;
 
     this.engine = switch (uninitializedEngine) {
       case OCREngine.Tesseract engine ->
@@ -127,11 +144,22 @@ public class Recognizer {
 
   public void destroy() {
     engine.destroy();
+    if (variantStatistics != null) {
+      variantStatistics.save();
+    }
+    if (recognitionCache != null) {
+      LOG.debug(
+        "Recognition cache hits: {}, misses: {}",
+        recognitionCache.getNumHits(), recognitionCache.getNumMisses()
+      );
+    }
   }
 
+  private record TesseractVariant(String label, BufferedImage img, TesseractModel model) {}
+
   private record LabelledTesseractResult(String label, TesseractResult result) {}
 
-  public record LabelledTesseractHOCROutput(String label, String hocr) {}
+  public record LabelledTesseractOutput(String label, TesseractResult.Output output) {}
 
   public record BoxRecognitionOutput(UnprocessedChunkVariants chunkVariants) {}
 
@@ -150,9 +178,20 @@ public class Recognizer {
       sendDebugImage(img, "%s OCR".formatted(engine.isRemote() ? "Remote" : "Local"));
     }
 
+    RecognitionCache.Key cacheKey = null;
+    if (recognitionCache != null) {
+      cacheKey = RecognitionCache.keyOf(img, engine, textOrientation);
+      var maybeCached = recognitionCache.get(cacheKey);
+      if (maybeCached.isPresent()) {
+        LOG.debug("Using cached box recognition result");
+        return Result.Ok(new BoxRecognitionOutput(maybeCached.get()));
+      }
+    }
+
     LOG.debug("Starting box recognition");
-    return switch (engine) {
-      case OCREngine.Tesseract _     -> recognizeBoxTesseract(img, textOrientation);
+    var event = RecognitionTrace.stage("box-recognition");
+    Result<BoxRecognitionOutput, RecognitionOpError> res = switch (engine) {
+      case OCREngine.Tesseract engine      -> recognizeBoxTesseract(engine, img, textOrientation);
       case OCREngine.MangaOCR engine       -> recognizeBoxMangaOCR(engine.controller(), img);
       case OCREngine.MangaOCROnline engine -> recognizeBoxRemote(engine.adapter(), img);
       case OCREngine.OCRSpace engine       -> recognizeBoxRemote(engine.adapter(), img);
@@ -160,6 +199,18 @@ public class Recognizer {
       case OCREngine.HiveOCROnline engine  -> recognizeBoxRemote(engine.adapter(), img);
       case OCREngine.None _          -> Result.Err(RecognitionOpError.OCR_UNAVAILABLE);
     };
+    event.finish(img);
+
+    // The recognition was superseded by a newer one and its result might be incomplete
+    if (Thread.currentThread().isInterrupted()) {
+      LOG.debug("Box recognition was cancelled");
+      return Result.Err(RecognitionOpError.CANCELLED);
+    }
+
+    if (cacheKey != null && res.isOk()) {
+      recognitionCache.put(cacheKey, res.get().chunkVariants());
+    }
+    return res;
   }
 
   public Optional<BufferedImage> autoNarrowToTextBlock(
@@ -173,10 +224,37 @@ public class Recognizer {
     if (detector == null) {
       return Optional.empty();
     }
+    var event = RecognitionTrace.stage("auto-block-detection");
     var block = detector.detect(img, debug, this::sendDebugImage);
+    event.finish(img);
     return block.map(b -> ImageOps.cropped(img, b));
   }
 
+  // Page analysis mode of auto block detection: all the text blocks on the page are detected the
+  // first time the page is seen, and the block at `point` is then only looked up. Empty if there is
+  // no detected block at `point`
+  public Optional<BufferedImage> textBlockOnPage(BufferedImage pageImg, Point point) {
+    var fingerprintEvent = RecognitionTrace.stage("page-fingerprint");
+    var fingerprint = PageBlockCache.fingerprintOf(pageImg);
+    fingerprintEvent.finish(pageImg);
+
+    var blocks = pageBlockCache.get(fingerprint).orElseGet(() -> {
+      LOG.debug("Detecting text blocks on the page");
+      var event = RecognitionTrace.stage("page-block-detection");
+      var detected = pageBlockDetector.detectAll(pageImg, debug, this::sendDebugImage);
+      event.finish(pageImg);
+      LOG.debug("Detected {} text blocks on the page", detected.size());
+      pageBlockCache.put(fingerprint, detected);
+      return detected;
+    });
+
+    // Blocks can be nested, in which case the innermost one is the most specific
+    return blocks.stream()
+      .filter(b -> b.contains(point))
+      .min(Comparator.comparingInt(Rectangle::getArea))
+      .map(b -> ImageOps.cropped(pageImg, b));
+  }
+
   private enum BlockRotation {
     BELOW_HORIZONTAL, // Edge start below and to the left of edge end
     BELOW_VERTICAL, // Edge start above and to the left of edge end
@@ -327,7 +405,9 @@ public class Recognizer {
     MangaOCRController controller,
     BufferedImage img
   ) {
+    var event = RecognitionTrace.stage("manga-ocr");
     var maybeText = controller.recognize(img);
+    event.finish(img);
     if (maybeText.isEmpty()) {
       return Result.Err(RecognitionOpError.OCR_ERROR);
     }
@@ -350,11 +430,19 @@ public class Recognizer {
           Thread.sleep(REMOTE_OCR_RETRY_INTERVALS_MS.get(attemptNo - 1));
         } catch (InterruptedException e) {
           LOG.debug("Interrupted while waiting to retry remote OCR request");
+          Thread.currentThread().interrupt();
+          return Result.Err(RecognitionOpError.CANCELLED);
         }
         LOG.info("Retrying remote OCR request");
       }
+      var event = RecognitionTrace.stage("remote-ocr");
       res = adapter.ocr(img);
+      event.finish(img);
       mightAttempt = false;
+      if (res.isErr() && res.err() instanceof RemoteOCRRequestError.Cancelled) {
+        LOG.debug("Remote OCR request was cancelled");
+        return Result.Err(RecognitionOpError.CANCELLED);
+      }
       if (res.isErr()) {
         var msg = switch (res.err()) {
           case RemoteOCRRequestError.Timeout _ -> {
@@ -365,6 +453,8 @@ public class Recognizer {
             mightAttempt = true;
             yield "HTTP client send execution has failed: %s".formatted(err.exceptionMessage());
           }
+          case RemoteOCRRequestError.Cancelled _ ->
+            throw new IllegalStateException("Unhandled remote OCR request cancellation");
           case RemoteOCRRequestError.Unauthorized _ ->
             "Received `Unauthorized` response. The provided API key is likely invalid";
           case RemoteOCRRequestError.UnexpectedStatusCode err ->
@@ -388,14 +478,22 @@ public class Recognizer {
   }
 
   private Result<BoxRecognitionOutput, RecognitionOpError> recognizeBoxTesseract(
-    BufferedImage img, TextOrientation textOrientation
+    OCREngine.Tesseract tesseractEngine, BufferedImage img, TextOrientation textOrientation
   ) {
+    var variantGenerationEvent = RecognitionTrace.stage("variant-generation");
+
     // Remove alpha channel
     if (img.getType() != BufferedImage.TYPE_INT_RGB) {
       img = ImageOps.withoutAlphaChannel(img);
       img = ImageOps.copied(img, BufferedImage.TYPE_INT_RGB);
     }
 
+    var w = img.getWidth();
+    var h = img.getHeight();
+    // Grayscale version of the image. All the OCR variants are derived from this buffer and only
+    // materialized as images at the hand-off to the OCR engine
+    int[] gray = null;
+
     // If we detect background features that are likely to ruin text detection, try to get rid of
     // them by flood filling the image with white and then applying otsu threshold
     if (!ImageOps.isMostlyColorless(img) || ImageOps.hasBusyEdges(img)) {
@@ -404,12 +502,14 @@ public class Recognizer {
         BG_REMOVAL_FLOODFILL_NUM_EDGE_FLOOD_POINTS,
         BG_REMOVAL_FLOODFILL_THRESHOLD
       );
-      var imgArr = ImageOps.toGrayArray(img);
-      ImageOps.otsuThreshold(imgArr);
-      img = ImageOps.grayArrayToBufferedImage(imgArr, img.getWidth(), img.getHeight());
+      gray = ImageOps.toGrayArray(img);
+      ImageOps.otsuThreshold(gray);
+      img = ImageOps.grayArrayToBufferedImage(gray, w, h);
       if (debug) {
         sendDebugImage(img);
       }
+    } else {
+      gray = ImageOps.toGrayArray(img);
     }
 
     // Determine which tesseract models to use
@@ -426,33 +526,34 @@ public class Recognizer {
     final var model = tmpModel;
     final var altModel = tmpAltModel;
 
-    var tesseractCallables = new ArrayList<Callable<LabelledTesseractResult>>();
+    // Skip the variants that have rarely contributed to the result in the past. They are skipped
+    // before being generated, so that they do not cost any preprocessing either
+    var recognitionNumber = variantStatistics.beginRecognition();
+    Predicate<String> isWanted = label ->
+      label.equals(PRIMARY_VARIANT_LABEL)
+      || !variantStatistics.shouldSkip(label, recognitionNumber);
+
+    var tesseractVariants = new ArrayList<TesseractVariant>();
 
     // Queue OCR on the initial screenshot
-    final var initial = img;
-    tesseractCallables.add(() ->
-      new LabelledTesseractResult("initial", platform.tesseractOCR(initial, model))
-    );
+    var initial = ImageOps.grayArrayToBufferedImage(gray, w, h);
+    tesseractVariants.add(new TesseractVariant(PRIMARY_VARIANT_LABEL, initial, model));
 
     // Queue OCR on the initial screenshot using the alternative model
-    if (altModel != null) {
-      tesseractCallables.add(() ->
-        new LabelledTesseractResult("initial-alt", platform.tesseractOCR(initial, altModel))
-      );
+    if (altModel != null && isWanted.test("initial-alt")) {
+      tesseractVariants.add(new TesseractVariant("initial-alt", initial, altModel));
     }
 
-    // Invert the image and queue OCR again if we suspect it's white on black
+    // Invert the image and queue OCR again if we suspect it's white on black. The remaining
+    // variants are derived from the inverted version
     if (ImageOps.isDarkDominated(img)) {
-      ImageOps.negate(img);
-      final var negated = img;
-      tesseractCallables.add(() ->
-        new LabelledTesseractResult("inverted", platform.tesseractOCR(negated, model))
-      );
-
-      if (altModel != null) {
-        tesseractCallables.add(() ->
-          new LabelledTesseractResult("inverted-alt", platform.tesseractOCR(negated, altModel))
-        );
+      GrayArrayOps.negate(gray);
+      var inverted = ImageOps.grayArrayToBufferedImage(gray, w, h);
+      if (isWanted.test("inverted")) {
+        tesseractVariants.add(new TesseractVariant("inverted", inverted, model));
+      }
+      if (altModel != null && isWanted.test("inverted-alt")) {
+        tesseractVariants.add(new TesseractVariant("inverted-alt", inverted, altModel));
       }
     }
 
@@ -462,109 +563,172 @@ public class Recognizer {
     // }
 
     // Queue OCR on a version with a white border
-    final var withBorder = ImageOps.withBorder(
-      ImageOps.copied(img),
-      Color.WHITE,
-      WITH_BORDER_VARIANT_WHITE_BORDER_SIZE
-    );
-    tesseractCallables.add(() ->
-      new LabelledTesseractResult("white-border", platform.tesseractOCR(withBorder, model))
-    );
+    if (isWanted.test("white-border")) {
+      var borderW = WITH_BORDER_VARIANT_WHITE_BORDER_SIZE;
+      var withBorder = ImageOps.grayArrayToBufferedImage(
+        GrayArrayOps.withBorder(gray, w, h, borderW, /* level */ 255),
+        w + 2 * borderW,
+        h + 2 * borderW
+      );
+      tesseractVariants.add(new TesseractVariant("white-border", withBorder, model));
+    }
 
     // Queue OCR on a downscaled version
-    final var downscaled = ImageOps.scaled(img, 0.75f);
-    tesseractCallables.add(() ->
-      new LabelledTesseractResult("downscaled", platform.tesseractOCR(downscaled, model))
-    );
+    if (isWanted.test("downscaled")) {
+      var downscaledW = (int) (w * 0.75f);
+      var downscaledH = (int) (h * 0.75f);
+      var downscaled = ImageOps.grayArrayToBufferedImage(
+        GrayArrayOps.resampled(gray, w, h, downscaledW, downscaledH), downscaledW, downscaledH
+      );
+      tesseractVariants.add(new TesseractVariant("downscaled", downscaled, model));
+    }
 
     // Queue OCR on a version with thinner lines
-    final var thinLines = ImageOps.copied(img);
-    ImageOps.threshold(thinLines, 70, 150);
-    tesseractCallables.add(() ->
-      new LabelledTesseractResult("thin-lines", platform.tesseractOCR(thinLines, model))
-    );
+    if (isWanted.test("thin-lines")) {
+      var thinLines =
+        ImageOps.grayArrayToBufferedImage(GrayArrayOps.thresholded(gray, 70, 150), w, h);
+      tesseractVariants.add(new TesseractVariant("thin-lines", thinLines, model));
+    }
 
     // Queue OCR on a blurred version
-    final var blurred = ImageOps.blurred(ImageOps.copied(img), /* blurFactor */ 2);
-    tesseractCallables.add(() ->
-      new LabelledTesseractResult("blurred", platform.tesseractOCR(blurred, model))
-    );
+    if (isWanted.test("blurred")) {
+      var blurred = ImageOps.grayArrayToBufferedImage(
+        GrayArrayOps.blurred(gray, w, h, /* blurFactor */ 2), w, h
+      );
+      tesseractVariants.add(new TesseractVariant("blurred", blurred, model));
+    }
 
     // Queue OCR on a sharpened version
-    final var sharpened = ImageOps.copied(img);
-    ImageOps.sharpen(sharpened, /* amount */ 2f, /* threshold */ 0, /* blurFactor */ 3);
-    tesseractCallables.add(() ->
-      new LabelledTesseractResult("sharpened", platform.tesseractOCR(sharpened, model))
-    );
+    if (isWanted.test("sharpened")) {
+      var sharpened = ImageOps.grayArrayToBufferedImage(
+        GrayArrayOps.sharpened(
+          gray, w, h, /* amount */ 2f, /* threshold */ 0, /* blurFactor */ 3
+        ),
+        w,
+        h
+      );
+      tesseractVariants.add(new TesseractVariant("sharpened", sharpened, model));
+    }
 
-    List<Future<LabelledTesseractResult>> tesseractResultFutures = null;
+    variantGenerationEvent.finish(w, h, () -> labelsOf(tesseractVariants));
 
-    try {
-      tesseractResultFutures = Executor.get().invokeAll(tesseractCallables);
-    } catch (InterruptedException e) {
-      LOG.error(e);
-    }
-
-    // Transform the results
-    var numExecutions = tesseractResultFutures.size();
-    var numExecutionFails = 0;
-    var numTimeouts = 0;
-    List<String> errorMsgs = null;
-    List<LabelledTesseractHOCROutput> variants = null;
-    for (var labelledResultFuture : tesseractResultFutures) {
-      LabelledTesseractResult labelledResult = null;
-      try {
-        labelledResult = labelledResultFuture.get();
-      } catch (ExecutionException | InterruptedException e) {
-        LOG.debug("Exception while getting future labelled tesseract result", e);
-        numExecutionFails++;
-        continue;
-      }
-      switch (labelledResult.result) { // NOPMD - misidentifies as non-exhaustive
-        case TesseractResult.ExecutionFailed _ ->
-          numExecutionFails++;
-        case TesseractResult.TimedOut _ ->
-          numTimeouts++;
-        case TesseractResult.Error error -> {
-          if (errorMsgs == null) {
-            errorMsgs = new ArrayList<>();
+    // With the executable, group the variants by model, so that every model only needs to be loaded
+    // once, and process each group in a single batch. In-process, the models stay loaded, so every
+    // variant can be scheduled on its own
+    var variantGroups = platform.isTesseractInProcess()
+      ? tesseractVariants.stream().map(List::of).toList()
+      : List.copyOf(
+          tesseractVariants.stream()
+            .collect(groupingBy(TesseractVariant::model, LinkedHashMap::new, toList()))
+            .values()
+        );
+    // Every group is a separate engine job, run when the global OCR governor gives it a slot. The
+    // group with the primary variant is always waited for, so there is a result to fall back on
+    var requestID = RecognitionTrace.currentRequestID();
+    var tesseractTasks = variantGroups.stream()
+      .map(group -> new VariantScheduler.Task<List<LabelledTesseractResult>>(
+        () -> {
+          var event = RecognitionTrace.stage(requestID, "tesseract");
+          var results = platform.tesseractOCRBatch(
+            group.stream().map(TesseractVariant::img).toList(),
+            group.getFirst().model()
+          );
+          event.finish(w, h, () -> labelsOf(group));
+          var labelledResults = new ArrayList<LabelledTesseractResult>(results.size());
+          for (var i = 0; i < results.size(); i++) {
+            var label = group.get(i).label();
+            labelledResults.add(new LabelledTesseractResult(label, results.get(i)));
           }
-          errorMsgs.add(error.error());
-        }
-        case TesseractResult.HOCR hocr -> {
-          if (variants == null) {
-            variants = new ArrayList<>();
+          return labelledResults;
+        },
+        group.size(),
+        group.stream().anyMatch(v -> v.label().equals(PRIMARY_VARIANT_LABEL))
+      ))
+      .toList();
+
+    // Transform the results as they arrive, stopping early once enough variants agree on the text
+    var numExecutions = tesseractVariants.size();
+    final var stats = new Object() {
+      int numExecutionFails;
+      int numTimeouts;
+      int numOutputs;
+      final List<String> outputLabels = new ArrayList<>(16);
+      List<String> errorMsgs;
+    };
+    var parsedVariants = UnprocessedChunkVariants.empty();
+    var consensusVariants = tesseractEngine.consensusVariants();
+    var outcome = VariantScheduler.run(
+      tesseractTasks,
+      OCRGovernor.get().newRequest(),
+      tesseractEngine.latencyBudgetMS(),
+      labelledResults -> {
+        var reachedConsensus = false;
+        for (var labelledResult : labelledResults) {
+          switch (labelledResult.result) { // NOPMD - misidentifies as non-exhaustive
+            case TesseractResult.ExecutionFailed _ ->
+              stats.numExecutionFails++;
+            case TesseractResult.TimedOut _ ->
+              stats.numTimeouts++;
+            case TesseractResult.Error error -> {
+              if (stats.errorMsgs == null) {
+                stats.errorMsgs = new ArrayList<>();
+              }
+              stats.errorMsgs.add(error.error());
+            }
+            case TesseractResult.Output output -> {
+              stats.numOutputs++;
+              stats.outputLabels.add(labelledResult.label);
+              var numAgreeing = parsedVariants.addFromLabelledTesseractOutput(
+                new LabelledTesseractOutput(labelledResult.label, output)
+              );
+              if (consensusVariants > 0 && numAgreeing >= consensusVariants) {
+                reachedConsensus = true;
+              }
+            }
           }
-          variants.add(new LabelledTesseractHOCROutput(labelledResult.label, hocr.hocr()));
         }
+        return reachedConsensus;
       }
+    );
+    for (var taskIdx : outcome.failedTaskIndices()) {
+      stats.numExecutionFails += variantGroups.get(taskIdx).size();
+    }
+    var skippedLabels = outcome.skippedTaskIndices().stream()
+      .flatMap(taskIdx -> variantGroups.get(taskIdx).stream())
+      .map(TesseractVariant::label)
+      .toList();
+    if (!skippedLabels.isEmpty()) {
+      LOG.debug("Skipped {}/{} Tesseract variants", skippedLabels.size(), numExecutions);
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      // Do not count the failures of variants that were killed mid-run
+      return Result.Err(RecognitionOpError.CANCELLED);
     }
 
     // Handle failures
-    if (numExecutionFails > 0) {
+    if (stats.numExecutionFails > 0) {
       LOG.error(
         "Some of the Tesseract calls have failed to execute ({}/{})",
-        numExecutionFails, numExecutions
+        stats.numExecutionFails, numExecutions
       );
     }
-    if (numTimeouts > 0) {
+    if (stats.numTimeouts > 0) {
       LOG.error(
         "Some of the Tesseract calls have timed out ({}/{})",
-        numTimeouts, numExecutions
+        stats.numTimeouts, numExecutions
       );
     }
-    if (errorMsgs != null) {
+    if (stats.errorMsgs != null) {
       LOG.error( // NOPMD
         "Some of the Tesseract calls have returned errors:\n{}",
-        errorMsgs.stream().distinct().collect(joining("\n"))
+        stats.errorMsgs.stream().distinct().collect(joining("\n"))
       );
     }
-    if (variants == null) {
+    if (stats.numOutputs == 0) {
       LOG.debug("All of the Tesseract calls have failed");
       return Result.Err(RecognitionOpError.OCR_ERROR);
     }
 
-    var parsedVariants = UnprocessedChunkVariants.fromLabelledTesseractHOCROutputs(variants);
     if (parsedVariants.isEmpty()) {
       return Result.Err(RecognitionOpError.ZERO_VARIANTS);
     }
@@ -572,9 +736,22 @@ public class Recognizer {
     parsedVariants.deduplicate();
     parsedVariants.sortByScore();
 
+    variantStatistics.record(
+      stats.outputLabels,
+      skippedLabels,
+      parsedVariants.getTopLabels(),
+      parsedVariants.getUniqueLabels()
+    );
+    // After recording, so that the statistics only credit the variants that were actually run
+    parsedVariants.addConsensus();
+
     return Result.Ok(new BoxRecognitionOutput(parsedVariants));
   }
 
+  private static String labelsOf(List<TesseractVariant> variants) {
+    return variants.stream().map(TesseractVariant::label).collect(joining(","));
+  }
+
   private static final class LineBucket {
     private float avgX = Float.NaN;
     private int minY = Integer.MAX_VALUE;
@@ -608,27 +785,33 @@ public class Recognizer {
     }
 
     // DEV: Doesn't work as expected for white-on-black
-    var eroded = ImageOps.eroded(img, 2, 2);
-    var imgArr = ImageOps.toGrayArray(eroded);
+    var imgArr = GrayMorphology.eroded(
+      ImageOps.toGrayArray(img),
+      img.getWidth(),
+      img.getHeight(),
+      StructuringElement.rectangle(2, 2)
+    );
     ImageOps.otsuThreshold(imgArr);
 
-    var ccExtractor = new ConnectedComponentExtractor();
-    final var ccMetrics = new Object() { int totalWidth; int totalHeight; };
-    var ccs = Arrays.stream(ccExtractor.extract(imgArr, img.getWidth(), img.getHeight()))
-      .skip(1)
-      .map(ConnectedComponent::rectangle)
-      .filter(cc -> cc.dimensionsWithin(1, 150) && cc.getArea() < 4000)
-      .peek(cc -> {
-        ccMetrics.totalWidth += cc.getWidth();
-        ccMetrics.totalHeight += cc.getHeight();
-      })
-      .toList();
-    if (ccs.isEmpty()) {
+    var components = ConnectedComponentLabeler.label(
+      imgArr,
+      img.getWidth(),
+      img.getHeight(),
+      new ConnectedComponentLabeler.SizeFilter(1, 150, 4000)
+    );
+    if (components.count() == 0) {
       return lineRects;
     }
+    var ccs = components.rectangles();
 
-    var ccAvgWidth = ccMetrics.totalWidth / ccs.size();
-    var ccAvgHeight = ccMetrics.totalHeight / ccs.size();
+    var totalWidth = 0;
+    var totalHeight = 0;
+    for (var i = 0; i < components.count(); i++) {
+      totalWidth += components.width(i);
+      totalHeight += components.height(i);
+    }
+    var ccAvgWidth = totalWidth / ccs.size();
+    var ccAvgHeight = totalHeight / ccs.size();
 
     if (debug) {
       debugGfx.setColor(Color.PINK);
@@ -639,21 +822,21 @@ public class Recognizer {
 
     var lineToleranceX = ccAvgWidth * 1.5;
     var lineBuckets = new ArrayList<LineBucket>(16);
+    // Bucket index -> its average x
+    var bucketColumns = new ColumnIndex();
     for (var cc : ccs) {
-      LineBucket targetBucket = null;
-      var xDistToTargetBucket = Float.POSITIVE_INFINITY;
-      for (var b : lineBuckets) {
-        var xDistToB = Math.abs(b.avgX - cc.getCenter().x());
-        if (xDistToB <= lineToleranceX && xDistToB < xDistToTargetBucket) {
-          xDistToTargetBucket = xDistToB;
-          targetBucket = b;
-        }
-      }
-      if (targetBucket == null) {
-        targetBucket = new LineBucket();
+      var targetBucketIdx = bucketColumns.nearest(cc.getCenter().x(), lineToleranceX);
+      if (targetBucketIdx == -1) {
+        var targetBucket = new LineBucket();
+        targetBucket.add(cc);
+        bucketColumns.add(lineBuckets.size(), targetBucket.avgX);
         lineBuckets.add(targetBucket);
+      } else {
+        var targetBucket = lineBuckets.get(targetBucketIdx);
+        var prevAvgX = targetBucket.avgX;
+        targetBucket.add(cc);
+        bucketColumns.move(targetBucketIdx, prevAvgX, targetBucket.avgX);
       }
-      targetBucket.add(cc);
     }
 
     var lineToleranceY = ccAvgHeight * 2;
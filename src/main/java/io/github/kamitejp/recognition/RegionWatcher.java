@@ -0,0 +1,151 @@
+package io.github.kamitejp.recognition;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.kamitejp.geometry.Rectangle;
+import io.github.kamitejp.image.ImageOps;
+import io.github.kamitejp.util.Result;
+
+// Continuously watches screen regions (e.g., a game's textbox) and has them recognized whenever
+// their content changes. Each poll reduces the region's screenshot to a coarse brightness
+// signature. A change is only acted upon once the signature has stayed the same for a number of
+// polls, so that text that is still being typed out or faded in is not recognized prematurely
+final class RegionWatcher {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int SIGNATURE_GRID_W = 32;
+  private static final int SIGNATURE_GRID_H = 16;
+  private static final int SIGNATURE_ROWS_PER_CELL = 4;
+  // The difference in the average brightness of a signature cell that counts as a change. Has to
+  // exceed the noise of video playback and compression, while a single character appearing within
+  // the cell still crosses it
+  private static final int SIGNATURE_CELL_CHANGE_THRESHOLD = 6;
+
+  private final List<WatchedRegion> regions;
+  private final long intervalMS;
+  private final int stablePolls;
+  private final Function<Rectangle, Result<BufferedImage, RecognitionOpError>> screenshotFn;
+  private final BiConsumer<BufferedImage, Boolean> recognizeFn;
+  private final Thread worker;
+  private long numPolls;
+  private long totalSignatureNS;
+  private long numRecognitions;
+
+  record Region(Rectangle area, boolean autoNarrow) {}
+
+  private static final class WatchedRegion {
+    private final Region region;
+    private int[] lastSignature;
+    // The signature of the content that was last recognized
+    private int[] recognizedSignature;
+    private int numStablePolls;
+    private boolean screenshotFailing;
+
+    WatchedRegion(Region region) {
+      this.region = region;
+    }
+  }
+
+  RegionWatcher(
+    List<Region> regions,
+    long intervalMS,
+    int stablePolls,
+    Function<Rectangle, Result<BufferedImage, RecognitionOpError>> screenshotFn,
+    BiConsumer<BufferedImage, Boolean> recognizeFn
+  ) {
+    this.regions = regions.stream().map(WatchedRegion::new).toList();
+    this.intervalMS = intervalMS;
+    this.stablePolls = stablePolls;
+    this.screenshotFn = screenshotFn;
+    this.recognizeFn = recognizeFn;
+    LOG.debug("Starting region watcher ({} regions)", regions.size());
+    worker = Thread.ofVirtual().start(this::run);
+  }
+
+  void destroy() {
+    worker.interrupt();
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    LOG.debug(
+      "Region watcher stats: polls: {}, average signature time: {} µs, recognitions: {}",
+      numPolls,
+      numPolls == 0 ? 0 : totalSignatureNS / numPolls / 1000,
+      numRecognitions
+    );
+  }
+
+  private void run() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        for (var r : regions) {
+          poll(r);
+        }
+        Thread.sleep(intervalMS);
+      }
+    } catch (InterruptedException e) {
+      LOG.debug("Region watcher was interrupted. Aborting");
+    }
+  }
+
+  private void poll(WatchedRegion r) {
+    var screenshotRes = screenshotFn.apply(r.region.area());
+    if (screenshotRes.isErr()) {
+      if (!r.screenshotFailing) {
+        LOG.warn(
+          "Region watcher could not take a screenshot of {}: {}",
+          r.region.area(),
+          screenshotRes.err()
+        );
+        r.screenshotFailing = true;
+      }
+      return;
+    }
+    r.screenshotFailing = false;
+    var img = screenshotRes.get();
+
+    var startNS = System.nanoTime();
+    var signature = ImageOps.sampledBrightnessGrid(
+      img, SIGNATURE_GRID_W, SIGNATURE_GRID_H, SIGNATURE_ROWS_PER_CELL
+    );
+    totalSignatureNS += System.nanoTime() - startNS;
+    numPolls++;
+
+    if (r.lastSignature == null || differ(signature, r.lastSignature)) {
+      r.lastSignature = signature;
+      r.numStablePolls = 0;
+      return;
+    }
+    r.numStablePolls++;
+    // Compared with the recognized content rather than only checked once upon settling, since a
+    // gradual change can stay below the threshold from one poll to the next
+    if (
+      r.numStablePolls >= stablePolls
+      && (r.recognizedSignature == null || differ(signature, r.recognizedSignature))
+    ) {
+      r.recognizedSignature = signature;
+      numRecognitions++;
+      LOG.debug("Watched region has changed and settled: {}", r.region.area());
+      // Blocks until the recognition is done, which pauses the polling in the meantime
+      recognizeFn.accept(img, r.region.autoNarrow());
+    }
+  }
+
+  private static boolean differ(int[] a, int[] b) {
+    for (var i = 0; i < a.length; i++) {
+      if (Math.abs(a[i] - b[i]) > SIGNATURE_CELL_CHANGE_THRESHOLD) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,139 @@
+package io.github.kamitejp.recognition;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.kamitejp.util.Executor;
+
+// Runs OCR variant tasks concurrently and hands over their results as they arrive, so that the
+// caller can stop waiting as soon as it has seen enough, instead of waiting for the slowest task
+final class VariantScheduler {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  // How often to check for tasks that have run out of budget while no results are arriving. Tasks
+  // that start running only later are not known to the waiting loop until then
+  private static final long RECHECK_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static final long NOT_STARTED = Long.MIN_VALUE;
+
+  private VariantScheduler() {}
+
+  // A task running `numVariants` variants in a single engine job. A required task is never given
+  // up on for running out of budget, so that a slow engine does not turn into a failed recognition
+  record Task<T>(Callable<T> callable, int numVariants, boolean required) {}
+
+  // Indices of tasks that threw an exception and of tasks whose results were not waited for
+  record Outcome(List<Integer> failedTaskIndices, List<Integer> skippedTaskIndices) {}
+
+  // Submits the tasks in the given (priority) order, each running as a job of `governorRequest`,
+  // and passes their results to `onResult` in the order of completion. Stops when all of the tasks
+  // have been handled or when `onResult` returns `true`, cancelling the tasks that are still
+  // running at that point.
+  //
+  // Once the first result has arrived, a task that is not required is given up on when it has
+  // been running for longer than `budgetMS` per variant. The time spent waiting for a governor
+  // slot, as well as the time before the first result, does not count towards the budget, since
+  // it depends on the load rather than on the task. A `budgetMS` of 0 disables the budget
+  static <T> Outcome run(
+    List<Task<T>> tasks,
+    OCRGovernor.Request governorRequest,
+    long budgetMS,
+    Predicate<T> onResult
+  ) {
+    var completionService = new ExecutorCompletionService<T>(Executor.get());
+    var futures = new ArrayList<Future<T>>(tasks.size());
+    var startTimes = new AtomicLongArray(tasks.size());
+    for (var i = 0; i < tasks.size(); i++) {
+      final var taskIdx = i;
+      var task = tasks.get(i);
+      startTimes.set(taskIdx, NOT_STARTED);
+      futures.add(completionService.submit(() -> OCRGovernor.get().run(governorRequest, () -> {
+        startTimes.set(taskIdx, System.nanoTime());
+        return task.callable().call();
+      })));
+    }
+
+    var budgetNS = TimeUnit.MILLISECONDS.toNanos(budgetMS);
+    var firstResultTime = NOT_STARTED;
+    var handled = new boolean[futures.size()];
+    var numHandled = 0;
+    var failedTaskIndices = new ArrayList<Integer>();
+    var skippedTaskIndices = new ArrayList<Integer>();
+    try {
+      while (numHandled < futures.size()) {
+        var waitNS = Long.MAX_VALUE;
+        if (budgetMS > 0 && firstResultTime != NOT_STARTED) {
+          var now = System.nanoTime();
+          waitNS = RECHECK_INTERVAL_NS;
+          for (var i = 0; i < futures.size(); i++) {
+            var startTime = startTimes.get(i);
+            if (handled[i] || tasks.get(i).required() || startTime == NOT_STARTED) {
+              continue;
+            }
+            var deadline =
+              Math.max(startTime, firstResultTime) + budgetNS * tasks.get(i).numVariants();
+            if (deadline - now <= 0) {
+              LOG.debug("Variant task {} has run out of its latency budget", i);
+              futures.get(i).cancel(/* mayInterruptIfRunning */ true);
+              handled[i] = true;
+              numHandled++;
+              skippedTaskIndices.add(i);
+            } else {
+              waitNS = Math.min(waitNS, deadline - now);
+            }
+          }
+          if (numHandled == futures.size()) {
+            break;
+          }
+        }
+
+        var future = completionService.poll(waitNS, TimeUnit.NANOSECONDS);
+        if (future == null) {
+          continue;
+        }
+        var taskIdx = futures.indexOf(future);
+        if (handled[taskIdx]) {
+          // Cancelled tasks are queued as completed too
+          continue;
+        }
+        handled[taskIdx] = true;
+        numHandled++;
+        try {
+          var result = future.get();
+          if (firstResultTime == NOT_STARTED) {
+            firstResultTime = System.nanoTime();
+          }
+          if (onResult.test(result)) {
+            LOG.debug("Stopping variant scheduling early");
+            break;
+          }
+        } catch (ExecutionException e) {
+          LOG.debug("Exception while getting variant task result", e);
+          failedTaskIndices.add(taskIdx);
+        }
+      }
+    } catch (InterruptedException e) {
+      LOG.debug("Interrupted while waiting for variant task results");
+      Thread.currentThread().interrupt();
+    }
+
+    for (var i = 0; i < futures.size(); i++) {
+      if (!handled[i]) {
+        futures.get(i).cancel(/* mayInterruptIfRunning */ true);
+        skippedTaskIndices.add(i);
+      }
+    }
+    return new Outcome(failedTaskIndices, skippedTaskIndices);
+  }
+}
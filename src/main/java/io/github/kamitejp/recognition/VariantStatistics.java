@@ -0,0 +1,158 @@
+package io.github.kamitejp.recognition;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import io.github.kamitejp.util.JSON;
+
+// Keeps track, per config profile, of how often each Tesseract OCR variant contributes to the
+// recognition result, i.e. ends up among the top-scored variants or produces a result no other
+// variant has. Variants that rarely contribute can then be skipped, save for occasional re-sampling
+final class VariantStatistics {
+  private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String FILENAME = "variant-stats.json";
+  private static final String DEFAULT_PROFILE_KEY = "default";
+  // Number of recorded recognitions after which the statistics are written to disk
+  private static final int SAVE_INTERVAL = 10;
+
+  private final Path filePath;
+  private final OCREngine.Tesseract.VariantPruning pruning;
+  private final Map<String, Map<String, LabelStats>> profiles;
+  private final Map<String, LabelStats> stats;
+  private int numRecognitions;
+  private int numUnsaved;
+
+  static final class LabelStats {
+    public int runs;
+    public int wins;
+    public int uniques;
+    public int contributions;
+    // Times the variant was cut off by an early consensus exit or the latency budget. These are
+    // not runs: counting them against the contribution rate would get the variants that are slow
+    // to finish pruned for being slow, making them even less likely to contribute
+    public int skips;
+
+    double contributionRate() {
+      return runs == 0 ? 1 : (double) contributions / runs;
+    }
+  }
+
+  private VariantStatistics(
+    Path filePath,
+    OCREngine.Tesseract.VariantPruning pruning,
+    Map<String, Map<String, LabelStats>> profiles,
+    String profileKey
+  ) {
+    this.filePath = filePath;
+    this.pruning = pruning;
+    this.profiles = profiles;
+    this.stats = profiles.computeIfAbsent(profileKey, _ -> new HashMap<>());
+  }
+
+  static VariantStatistics load(
+    Optional<Path> dataDirPath,
+    List<String> profileNames,
+    OCREngine.Tesseract.VariantPruning pruning
+  ) {
+    var profileKey = profileNames == null || profileNames.isEmpty()
+      ? DEFAULT_PROFILE_KEY
+      : String.join(",", profileNames);
+    var filePath = dataDirPath.map(p -> p.resolve(FILENAME)).orElse(null);
+
+    Map<String, Map<String, LabelStats>> profiles = null;
+    if (filePath != null && Files.isReadable(filePath)) {
+      try {
+        profiles = JSON.mapper().readValue(filePath.toFile(), new TypeReference<>() {});
+      } catch (IOException e) {
+        LOG.warn("Could not read OCR variant statistics, starting anew: {}", e::toString);
+      }
+    }
+    if (profiles == null) {
+      profiles = new HashMap<>();
+    }
+
+    return new VariantStatistics(filePath, pruning, profiles, profileKey);
+  }
+
+  // Marks the start of a recognition. Returns its sequence number, used to decide about re-sampling
+  synchronized int beginRecognition() {
+    return numRecognitions++;
+  }
+
+  synchronized boolean shouldSkip(String label, int recognitionNumber) {
+    if (!pruning.enable()) {
+      return false;
+    }
+    var labelStats = stats.get(label);
+    if (
+      labelStats == null
+      || labelStats.runs < pruning.minSamples()
+      || labelStats.contributionRate() >= pruning.minContributionRate()
+    ) {
+      return false;
+    }
+    if (recognitionNumber % pruning.resampleInterval() == 0) {
+      LOG.debug("Re-sampling pruned OCR variant '{}'", label);
+      return false;
+    }
+    return true;
+  }
+
+  synchronized void record(
+    Collection<String> ranLabels,
+    Collection<String> skippedLabels,
+    Collection<String> topLabels,
+    Collection<String> uniqueLabels
+  ) {
+    for (var label : skippedLabels) {
+      stats.computeIfAbsent(label, _ -> new LabelStats()).skips++;
+    }
+    for (var label : ranLabels) {
+      var labelStats = stats.computeIfAbsent(label, _ -> new LabelStats());
+      labelStats.runs++;
+      var won = topLabels.contains(label);
+      var unique = uniqueLabels.contains(label);
+      if (won) {
+        labelStats.wins++;
+      }
+      if (unique) {
+        labelStats.uniques++;
+      }
+      if (won || unique) {
+        labelStats.contributions++;
+      }
+    }
+    if (++numUnsaved >= SAVE_INTERVAL) {
+      save();
+    }
+  }
+
+  synchronized void save() {
+    if (filePath == null || numUnsaved == 0) {
+      return;
+    }
+    try {
+      Files.createDirectories(filePath.getParent());
+      var tmpPath = filePath.resolveSibling(FILENAME + ".tmp");
+      JSON.mapper().writeValue(tmpPath.toFile(), profiles);
+      Files.move(tmpPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+      numUnsaved = 0;
+    } catch (IOException e) {
+      LOG.warn("Could not save OCR variant statistics: {}", e::toString);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package io.github.kamitejp.recognition.imagefeature;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Two-pass connected component labeling with union-find, using 8-connectivity. The input is a
+// grayscale image where white (255) is the background and every other pixel is the foreground.
+//
+// The first pass links each foreground pixel to a neighbour above or to the left, uniting the sets
+// of neighbours that meet at the pixel. Links always point to a lower pixel index, so the root of
+// each set is its first pixel in raster order. This lets the second pass assign the final component
+// of every pixel from the one it is linked to, which has already been visited, while accumulating
+// the component statistics. For large images, the first pass is run on horizontal strips in
+// parallel, after which the sets meeting across the strip boundaries are united
+public final class ConnectedComponentLabeler {
+  private static final int BACKGROUND = 255;
+  private static final int PARALLEL_MIN_PIXELS = 1 << 20;
+  private static final int PARALLEL_MIN_STRIP_HEIGHT = 64;
+  private static final int INITIAL_COMPONENTS_CAPACITY = 256;
+
+  // Bounds for the dimensions of a component's bounding box and for its area, the latter exclusive
+  public record SizeFilter(int minDimension, int maxDimension, int boxAreaLimit) {
+    public static final SizeFilter NONE =
+      new SizeFilter(1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    boolean accepts(int w, int h) {
+      return w >= minDimension && w <= maxDimension && h >= minDimension && h <= maxDimension
+        && (long) w * h < boxAreaLimit;
+    }
+  }
+
+  private ConnectedComponentLabeler() {}
+
+  public static ConnectedComponents label(int[] img, int w, int h, SizeFilter filter) {
+    if (w < 1 || h < 1 || img.length < w * h) {
+      throw new IllegalArgumentException("Invalid connected component labeling input dimensions");
+    }
+    var parent = new int[w * h];
+
+    var numStrips = 1;
+    if (w * h >= PARALLEL_MIN_PIXELS) {
+      numStrips = Math.clamp(
+        h / PARALLEL_MIN_STRIP_HEIGHT, 1, Runtime.getRuntime().availableProcessors()
+      );
+    }
+    if (numStrips == 1) {
+      linkStrip(img, w, parent, 0, h);
+    } else {
+      final var strips = numStrips;
+      IntStream.range(0, strips).parallel().forEach(s ->
+        linkStrip(img, w, parent, s * h / strips, (s + 1) * h / strips)
+      );
+      for (var s = 1; s < strips; s++) {
+        linkAcrossBoundary(img, w, parent, s * h / strips);
+      }
+    }
+
+    return collectComponents(img, w, h, parent, filter);
+  }
+
+  private static void linkStrip(int[] img, int w, int[] parent, int startY, int endY) {
+    for (var y = startY; y < endY; y++) {
+      var hasAbove = y > startY;
+      var rowStart = y * w;
+      for (var x = 0; x < w; x++) {
+        var i = rowStart + x;
+        if (img[i] == BACKGROUND) {
+          continue;
+        }
+        var hasLeft = x > 0;
+        var hasRight = x < w - 1;
+        var n = -1;
+        if (hasAbove && img[i - w] != BACKGROUND) {
+          // Every other foreground neighbour is adjacent to this one, so already in its set
+          n = i - w;
+        } else {
+          if (hasLeft && img[i - 1] != BACKGROUND) {
+            n = i - 1;
+          } else if (hasAbove && hasLeft && img[i - w - 1] != BACKGROUND) {
+            n = i - w - 1;
+          }
+          if (hasAbove && hasRight && img[i - w + 1] != BACKGROUND) {
+            n = n == -1 ? i - w + 1 : union(parent, n, i - w + 1);
+          }
+        }
+        parent[i] = n == -1 ? i : find(parent, n);
+      }
+    }
+  }
+
+  private static void linkAcrossBoundary(int[] img, int w, int[] parent, int y) {
+    var rowStart = y * w;
+    for (var x = 0; x < w; x++) {
+      var i = rowStart + x;
+      if (img[i] == BACKGROUND) {
+        continue;
+      }
+      for (var dx = -1; dx <= 1; dx++) {
+        var nx = x + dx;
+        if (nx >= 0 && nx < w && img[i - w + dx] != BACKGROUND) {
+          union(parent, i, i - w + dx);
+        }
+      }
+    }
+  }
+
+  // Path halving. Keeps links pointing to lower indices
+  private static int find(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private static int union(int[] parent, int a, int b) {
+    var rootA = find(parent, a);
+    var rootB = find(parent, b);
+    if (rootA < rootB) {
+      parent[rootB] = rootA;
+      return rootA;
+    }
+    parent[rootA] = rootB;
+    return rootB;
+  }
+
+  // Second pass. Overwrites the links with component indices as it goes
+  private static ConnectedComponents collectComponents(
+    int[] img, int w, int h, int[] parent, SizeFilter filter
+  ) {
+    var stats = new Stats();
+    for (var y = 0; y < h; y++) {
+      var rowStart = y * w;
+      for (var x = 0; x < w; x++) {
+        var i = rowStart + x;
+        if (img[i] == BACKGROUND) {
+          continue;
+        }
+        var p = parent[i];
+        if (p == i) {
+          parent[i] = stats.add(x, y);
+        } else {
+          var c = parent[p];
+          parent[i] = c;
+          stats.extend(c, x, y);
+        }
+      }
+    }
+    return stats.filtered(filter);
+  }
+
+  private static final class Stats {
+    private int count;
+    private int[] left = new int[INITIAL_COMPONENTS_CAPACITY];
+    private int[] top = new int[INITIAL_COMPONENTS_CAPACITY];
+    private int[] right = new int[INITIAL_COMPONENTS_CAPACITY];
+    private int[] bottom = new int[INITIAL_COMPONENTS_CAPACITY];
+    private int[] area = new int[INITIAL_COMPONENTS_CAPACITY];
+    private long[] sumX = new long[INITIAL_COMPONENTS_CAPACITY];
+    private long[] sumY = new long[INITIAL_COMPONENTS_CAPACITY];
+
+    int add(int x, int y) {
+      if (count == left.length) {
+        var capacity = count * 2;
+        left = Arrays.copyOf(left, capacity);
+        top = Arrays.copyOf(top, capacity);
+        right = Arrays.copyOf(right, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+        area = Arrays.copyOf(area, capacity);
+        sumX = Arrays.copyOf(sumX, capacity);
+        sumY = Arrays.copyOf(sumY, capacity);
+      }
+      var c = count++;
+      left[c] = x;
+      top[c] = y;
+      right[c] = x;
+      bottom[c] = y;
+      area[c] = 1;
+      sumX[c] = x;
+      sumY[c] = y;
+      return c;
+    }
+
+    // Pixels come in raster order, so `top` is already set and `bottom` can only grow
+    void extend(int c, int x, int y) {
+      if (x < left[c]) {
+        left[c] = x;
+      } else if (x > right[c]) {
+        right[c] = x;
+      }
+      bottom[c] = y;
+      area[c]++;
+      sumX[c] += x;
+      sumY[c] += y;
+    }
+
+    // Compacts the arrays in place, keeping the components accepted by the filter
+    ConnectedComponents filtered(SizeFilter filter) {
+      var n = 0;
+      for (var c = 0; c < count; c++) {
+        if (!filter.accepts(right[c] - left[c] + 1, bottom[c] - top[c] + 1)) {
+          continue;
+        }
+        left[n] = left[c];
+        top[n] = top[c];
+        right[n] = right[c];
+        bottom[n] = bottom[c];
+        area[n] = area[c];
+        sumX[n] = sumX[c];
+        sumY[n] = sumY[c];
+        n++;
+      }
+      return new ConnectedComponents(n, left, top, right, bottom, area, sumX, sumY);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package io.github.kamitejp.recognition.imagefeature;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.kamitejp.geometry.Rectangle;
+
+// Statistics of the connected components found by `ConnectedComponentLabeler`, kept as parallel
+// primitive arrays indexed by component. Components are ordered by their first pixel in raster
+// order
+public final class ConnectedComponents {
+  private final int count;
+  private final int[] left;
+  private final int[] top;
+  private final int[] right;
+  private final int[] bottom;
+  private final int[] area;
+  private final long[] sumX;
+  private final long[] sumY;
+
+  ConnectedComponents(
+    int count,
+    int[] left,
+    int[] top,
+    int[] right,
+    int[] bottom,
+    int[] area,
+    long[] sumX,
+    long[] sumY
+  ) {
+    this.count = count;
+    this.left = left;
+    this.top = top;
+    this.right = right;
+    this.bottom = bottom;
+    this.area = area;
+    this.sumX = sumX;
+    this.sumY = sumY;
+  }
+
+  public int count() {
+    return count;
+  }
+
+  public int left(int i) {
+    return left[i];
+  }
+
+  public int top(int i) {
+    return top[i];
+  }
+
+  public int right(int i) {
+    return right[i];
+  }
+
+  public int bottom(int i) {
+    return bottom[i];
+  }
+
+  public int width(int i) {
+    return right[i] - left[i] + 1;
+  }
+
+  public int height(int i) {
+    return bottom[i] - top[i] + 1;
+  }
+
+  // Number of pixels, as opposed to the area of the bounding box
+  public int area(int i) {
+    return area[i];
+  }
+
+  public float centroidX(int i) {
+    return (float) sumX[i] / area[i];
+  }
+
+  public float centroidY(int i) {
+    return (float) sumY[i] / area[i];
+  }
+
+  public Rectangle rectangle(int i) {
+    return Rectangle.ofEdges(left[i], top[i], right[i], bottom[i]);
+  }
+
+  public List<Rectangle> rectangles() {
+    var res = new ArrayList<Rectangle>(count);
+    for (var i = 0; i < count; i++) {
+      res.add(rectangle(i));
+    }
+    return res;
+  }
+}
@@ -1,48 +1,76 @@
 package io.github.kamitejp.recognition.imagefeature;
 
-import java.util.List;
+import java.util.Arrays;
 
-import io.github.kamitejp.geometry.Point;
 import io.github.kamitejp.geometry.Rectangle;
 
 public class Contour {
-  public List<Point> points;
-  public int id;
+  private static final int INITIAL_POINTS_CAPACITY = 16;
+
+  public final int id;
   public int parent = 0;
-  public Type type;
+  public final Type type;
+  // Interleaved x and y coordinates of the points
+  private int[] coords = new int[INITIAL_POINTS_CAPACITY * 2];
+  private int numPoints;
+  // Computed on first use
+  private Rectangle boundingBox;
 
   public enum Type {
     HOLE,
     OUTER
   }
 
-  public Contour() {
-    this.type = Type.OUTER;
-  }
-
-  public Contour(List<Point> points, int id, Type type) {
-    this.points = points;
+  public Contour(int id, Type type) {
     this.id = id;
     this.type = type;
   }
 
+  void addPoint(int x, int y) {
+    if (numPoints * 2 == coords.length) {
+      coords = Arrays.copyOf(coords, coords.length * 2);
+    }
+    coords[numPoints * 2] = x;
+    coords[numPoints * 2 + 1] = y;
+    numPoints++;
+    boundingBox = null;
+  }
+
+  public int numPoints() {
+    return numPoints;
+  }
+
+  public int x(int i) {
+    return coords[i * 2];
+  }
+
+  public int y(int i) {
+    return coords[i * 2 + 1];
+  }
+
   public Rectangle getBoundingBox() {
-    return getBoundingBox(null, null);
+    if (boundingBox == null) {
+      boundingBox = getBoundingBox(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+    return boundingBox;
   }
 
-  public Rectangle getBoundingBox(Integer leftCutoff, Integer rightCutoff) {
+  // Bounding box of the points whose x is within the cutoffs (inclusive)
+  public Rectangle getBoundingBox(int leftCutoff, int rightCutoff) {
     var xmin = Integer.MAX_VALUE;
     var ymin = Integer.MAX_VALUE;
     int xmax = 0;
     int ymax = 0;
-    for (var p : points) {
-      if (leftCutoff != null && p.x() < leftCutoff)   continue; // NOPMD
-      if (rightCutoff != null && p.x() > rightCutoff) continue; // NOPMD
-
-      if (p.x() < xmin) xmin = p.x(); // NOPMD
-      if (p.x() > xmax) xmax = p.x(); // NOPMD
-      if (p.y() < ymin) ymin = p.y(); // NOPMD
-      if (p.y() > ymax) ymax = p.y(); // NOPMD
+    for (var i = 0; i < numPoints * 2; i += 2) {
+      var x = coords[i];
+      var y = coords[i + 1];
+      if (x < leftCutoff || x > rightCutoff) {
+        continue;
+      }
+      if (x < xmin) xmin = x; // NOPMD
+      if (x > xmax) xmax = x; // NOPMD
+      if (y < ymin) ymin = y; // NOPMD
+      if (y > ymax) ymax = y; // NOPMD
     }
     return Rectangle.ofEdges(xmin, ymin, xmax, ymax);
   }
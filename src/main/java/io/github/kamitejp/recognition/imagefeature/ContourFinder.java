@@ -37,6 +37,11 @@ import io.github.kamitejp.geometry.Point;
 @SuppressWarnings({"PMD.LocalVariableNamingConventions", "PMD.FormalParameterNamingConventions"})
 public final class ContourFinder {
   private static final int N_PIXEL_NEIGHBOR = 8;
+  // Neighbor id -> row and column offsets. Ids go counterclockwise, starting from the right
+  private static final int[] NEIGHBOR_DI = {0, -1, -1, -1, 0, 1, 1, 1};
+  private static final int[] NEIGHBOR_DJ = {1, 1, 0, -1, -1, -1, 0, 1};
+  // (di + 1) * 3 + (dj + 1) -> neighbor id
+  private static final int[] NEIGHBOR_ID_OF_OFFSET = {3, 2, 1, 4, -1, 0, 5, 6, 7};
 
   private ContourFinder() {
     // Empty
@@ -87,21 +92,21 @@ public final class ContourFinder {
           continue;
         }
 
-        var points = new ArrayList<Point>();
-        points.add(new Point(j, i));
-        var B = new Contour(points, nbd, j2 == j + 1 ? Contour.Type.HOLE : Contour.Type.OUTER);
+        var B = new Contour(nbd, j2 == j + 1 ? Contour.Type.HOLE : Contour.Type.OUTER);
+        B.addPoint(j, i);
         contours.add(B);
 
-        var B0 = new Contour();
-        for (int c = 0; c < contours.size(); c++){
-          if (contours.get(c).id == lnbd){
-            B0 = contours.get(c);
-            break;
-          }
+        // Contour ids are assigned consecutively from 2, with 1 standing for the image frame
+        var B0type = Contour.Type.OUTER;
+        var B0parent = 0;
+        if (lnbd >= 2) {
+          var B0 = contours.get(lnbd - 2);
+          B0type = B0.type;
+          B0parent = B0.parent;
         }
-        if (B0.type == Contour.Type.HOLE){
+        if (B0type == Contour.Type.HOLE){
           if (B.type == Contour.Type.HOLE){
-            B.parent = B0.parent;
+            B.parent = B0parent;
           } else {
             B.parent = lnbd;
           }
@@ -109,22 +114,20 @@ public final class ContourFinder {
           if (B.type == Contour.Type.HOLE){
             B.parent = lnbd;
           } else {
-            B.parent = B0.parent;
+            B.parent = B0parent;
           }
         }
 
-        var i1 = -1; 
-        var j1 = -1;
-        int[] i1j1 = cwNon0(F, w, i, j, i2, j2, 0);
-        if (i1j1 == null){
+        var d1 = cwNon0(F, w, i, j, i2, j2, 0);
+        if (d1 == -1){
           F[i * w + j] = -nbd;
           if (F[i * w + j] != 1) {
             lnbd = Math.abs(F[i * w + j]);
           }
           continue;
         }
-        i1 = i1j1[0];
-        j1 = i1j1[1];
+        var i1 = i + NEIGHBOR_DI[d1];
+        var j1 = j + NEIGHBOR_DJ[d1];
 
         i2 = i1;
         j2 = j1;
@@ -132,11 +135,11 @@ public final class ContourFinder {
         var j3 = j;
 
         while (true) {
-          int[] i4j4 = ccwNon0(F, w, i3, j3, i2, j2, 1);
-          int i4 = i4j4[0];
-          int j4 = i4j4[1];
+          var d4 = ccwNon0(F, w, i3, j3, i2, j2, 1);
+          var i4 = i3 + NEIGHBOR_DI[d4];
+          var j4 = j3 + NEIGHBOR_DJ[d4];
 
-          contours.get(contours.size() - 1).points.add(new Point(j4, i4));
+          B.addPoint(j4, i4);
 
           if (F[i3 * w + j3 + 1] == 0) {
             F[i3 * w + j3] = -nbd;
@@ -257,61 +260,37 @@ public final class ContourFinder {
     return (float) Math.sqrt(dx * dx + dy * dy);
   }
 
-  private static int[] neighborIDToIndex(int i, int j, int id) {
-    var k = 0;
-    var l = 0;
-    switch (id) {
-      case 0: k = i;     l = j + 1; break;
-      case 1: k = i - 1; l = j + 1; break;
-      case 2: k = i - 1; l = j;     break;
-      case 3: k = i - 1; l = j - 1; break;
-      case 4: k = i;     l = j - 1; break;
-      case 5: k = i + 1; l = j - 1; break;
-      case 6: k = i + 1; l = j;     break;
-      case 7: k = i + 1; l = j + 1; break;
-      default: throw new IllegalArgumentException();
-    }
-    return new int[]{k, l};
-  }
-
-  @SuppressWarnings("PMD.ControlStatementBraces")
   private static int neighborIndexToID(int i0, int j0, int i, int j){
     var di = i - i0;
     var dj = j - j0;
-    if (di == 0 && dj == 1) return 0;
-    if (di ==-1 && dj == 1) return 1;
-    if (di ==-1 && dj == 0) return 2;
-    if (di ==-1 && dj ==-1) return 3;
-    if (di == 0 && dj ==-1) return 4;
-    if (di == 1 && dj ==-1) return 5;
-    if (di == 1 && dj == 0) return 6;
-    if (di == 1 && dj == 1) return 7;
-    return -1;
+    if (di < -1 || di > 1 || dj < -1 || dj > 1) {
+      return -1;
+    }
+    return NEIGHBOR_ID_OF_OFFSET[(di + 1) * 3 + (dj + 1)];
   }
 
-  @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
-  private static int[] ccwNon0(int[] F, int w, int i0, int j0, int i, int j, int offset){
+  // The id of the first non-zero neighbor of (i0, j0), going counterclockwise from the neighbor
+  // (i, j) shifted by `offset`, or -1 if there is none
+  private static int ccwNon0(int[] F, int w, int i0, int j0, int i, int j, int offset){
     int id = neighborIndexToID(i0, j0, i, j);
     for (int k = 0; k < N_PIXEL_NEIGHBOR; k++){
       int kk = (k + id + offset + N_PIXEL_NEIGHBOR * 2) % N_PIXEL_NEIGHBOR;
-      int[] ij = neighborIDToIndex(i0, j0, kk);
-      if (F[ij[0] * w + ij[1]] != 0) {
-        return ij;
+      if (F[(i0 + NEIGHBOR_DI[kk]) * w + j0 + NEIGHBOR_DJ[kk]] != 0) {
+        return kk;
       }
     }
-    return null;
+    return -1;
   }
 
-  @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
-  private static int[] cwNon0(int[] F, int w, int i0, int j0, int i, int j, int offset){
+  // Same as `ccwNon0()`, but clockwise
+  private static int cwNon0(int[] F, int w, int i0, int j0, int i, int j, int offset){
     int id = neighborIndexToID(i0, j0, i, j);
     for (int k = 0; k < N_PIXEL_NEIGHBOR; k++){
       int kk = (-k + id - offset + N_PIXEL_NEIGHBOR * 2) % N_PIXEL_NEIGHBOR;
-      int[] ij = neighborIDToIndex(i0, j0, kk);
-      if (F[ij[0] * w + ij[1]] != 0) {
-        return ij;
+      if (F[(i0 + NEIGHBOR_DI[kk]) * w + j0 + NEIGHBOR_DJ[kk]] != 0) {
+        return kk;
       }
     }
-    return null;
+    return -1;
   }
 }
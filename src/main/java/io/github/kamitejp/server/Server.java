@@ -15,6 +15,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import io.github.kamitejp.Env;
 import io.github.kamitejp.api.IncomingCommand;
+import io.github.kamitejp.diagnostics.RecognitionTrace;
 import io.github.kamitejp.server.outmessage.OutMessage;
 import io.github.kamitejp.server.outmessage.UserNotificationOutMessage;
 import io.github.kamitejp.util.JSON;
@@ -90,6 +91,15 @@ public class Server {
   }
 
   public void send(OutMessage message) {
+    var event = RecognitionTrace.stage("server-send");
+    try {
+      doSend(message);
+    } finally {
+      event.finish();
+    }
+  }
+
+  private void doSend(OutMessage message) {
     if (wsPendingClientContext != null) {
       // This is normally done in the old connecton's `onClose()`, but that doesn't always fire
       // (e.g., browser crash)
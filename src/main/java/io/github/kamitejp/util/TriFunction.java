@@ -1,7 +0,0 @@
-package io.github.kamitejp.util;
-
-@FunctionalInterface
-public interface TriFunction<F, S, T, R> {
-  R apply(F first, S second, T third);
-}
-